@@ -0,0 +1,296 @@
+package de.thkoeln.bibl.api.io;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Class implements a compact binary serializing with a versioned header.
+ * Specializing sub-classes must implement the encoding and decoding of the
+ * record body for their specific types.
+ * 
+ * Every record starts with a header, followed by the record body:
+ * 
+ * MMMM VV TT B..B
+ * 
+ * M = magic number 'RM'				2 bytes
+ * V = format version					1 byte
+ * T = record type						1 byte
+ * B = record body, defined by the type
+ * 
+ * Records can be written back-to-back to a stream and read one by one.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <T> the type of objects the codec can handle
+ */
+public abstract class BinaryCodec<T> {
+	
+	private static final int MAGIC = 0x524D;
+	
+	private int version;
+	
+	/**
+	 * Initialize a new BinaryCodec with the supplied format version.
+	 * 
+	 * @param version the format version the codec writes
+	 */
+	protected BinaryCodec(int version) {
+		this.version = version;
+	}
+	
+	/**
+	 * Returns the format version the codec writes.
+	 * 
+	 * @return the format version
+	 */
+	public int getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Encodes the object as record to the supplied output stream.
+	 * 
+	 * @param obj the object to encode
+	 * @param out the output stream to write the record to
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void encode(T obj, OutputStream out) throws IOException {
+		
+		DataOutput data = (out instanceof DataOutput) ? (DataOutput)out
+				: new DataOutputStream(out);
+		
+		writeRecord(obj, data);
+	}
+	
+	/**
+	 * Encodes the object as record to the supplied buffer.
+	 * 
+	 * @param obj the object to encode
+	 * @param buf the buffer to write the record to
+	 * @throws IOException if the buffer has not enough space left
+	 */
+	public void encode(T obj, ByteBuffer buf) throws IOException {
+		
+		try { writeRecord(obj, new DataOutputStream(new BufferOutputStream(buf))); }
+		catch (BufferOverflowException e) {
+			throw new IOException("buffer overflow", e);
+		}
+	}
+	
+	/**
+	 * Writes the object as record to the supplied data output.
+	 * 
+	 * @param obj the object to encode
+	 * @param out the data output to write the record to
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writeRecord(T obj, DataOutput out) throws IOException {
+		
+		// write header
+		out.writeShort(MAGIC);
+		out.writeByte(version);
+		out.writeByte(getType(obj));
+		
+		// write body
+		encodeBody(obj, out);
+	}
+	
+	/**
+	 * Decodes the next record from the supplied input stream.
+	 * 
+	 * @param in the input stream to read the record from
+	 * @return the decoded object or null if the end of the stream is reached
+	 * @throws IOException if an I/O error occurs or the record is invalid
+	 */
+	public T decode(InputStream in) throws IOException {
+		
+		DataInput data = (in instanceof DataInput) ? (DataInput)in
+				: new DataInputStream(in);
+		
+		return readRecord(data);
+	}
+	
+	/**
+	 * Decodes the next record from the supplied buffer.
+	 * 
+	 * @param buf the buffer to read the record from
+	 * @return the decoded object or null if the buffer has no remaining data
+	 * @throws IOException if the record is invalid or incomplete
+	 */
+	public T decode(ByteBuffer buf) throws IOException {
+		return readRecord(new DataInputStream(new BufferInputStream(buf)));
+	}
+	
+	/**
+	 * Reads the next record from the supplied data input.
+	 * 
+	 * @param in the data input to read the record from
+	 * @return the decoded object or null if the end of the input is reached
+	 * @throws IOException if an I/O error occurs or the record is invalid
+	 */
+	private T readRecord(DataInput in) throws IOException {
+		
+		int magic;
+		
+		// read header, the end of the input is reached before a new record
+		try { magic = in.readUnsignedShort(); }
+		catch (EOFException e) {
+			return null;
+		}
+		
+		if (magic != MAGIC) throw new IOException("invalid record header");
+		
+		int ver = in.readUnsignedByte();
+		if (ver > version) throw new IOException("unsupported format version: " + ver);
+		
+		int type = in.readUnsignedByte();
+		
+		// read body
+		return decodeBody(type, ver, in);
+	}
+	
+	/**
+	 * Returns the record type for the supplied object.
+	 * 
+	 * @param obj the object to get the record type for
+	 * @return the record type
+	 * @throws IOException if the object type is not supported
+	 */
+	protected abstract int getType(T obj) throws IOException;
+	
+	/**
+	 * Encodes the record body of the supplied object.
+	 * 
+	 * @param obj the object to encode
+	 * @param out the data output to write the body to
+	 * @throws IOException if an I/O error occurs
+	 */
+	protected abstract void encodeBody(T obj, DataOutput out) throws IOException;
+	
+	/**
+	 * Decodes a record body of the supplied type and format version.
+	 * 
+	 * @param type the record type
+	 * @param version the format version of the record
+	 * @param in the data input to read the body from
+	 * @return the decoded object
+	 * @throws IOException if an I/O error occurs or the type is not supported
+	 */
+	protected abstract T decodeBody(int type, int version, DataInput in)
+			throws IOException;
+	
+	/**
+	 * Writes a String that may be null to the supplied data output.
+	 * 
+	 * @param out the data output to write to
+	 * @param value the String or null
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static void writeString(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) out.writeUTF(value);
+	}
+	
+	/**
+	 * Reads a String written by writeString() from the supplied data input.
+	 * 
+	 * @param in the data input to read from
+	 * @return the String or null
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+	
+	/**
+	 * Writes a byte array that may be null to the supplied data output.
+	 * 
+	 * @param out the data output to write to
+	 * @param value the byte array or null
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static void writeBytes(DataOutput out, byte[] value) throws IOException {
+		out.writeInt((value != null) ? value.length : -1);
+		if (value != null) out.write(value);
+	}
+	
+	/**
+	 * Reads a byte array written by writeBytes() from the supplied data input.
+	 * 
+	 * @param in the data input to read from
+	 * @return the byte array or null
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static byte[] readBytes(DataInput in) throws IOException {
+		
+		int len = in.readInt();
+		if (len < 0) return null;
+		
+		byte[] value = new byte[len];
+		in.readFully(value);
+		return value;
+	}
+	
+	/**
+	 * Output stream writing to a byte buffer.
+	 */
+	private static class BufferOutputStream extends OutputStream {
+		
+		private ByteBuffer buf;
+		
+		private BufferOutputStream(ByteBuffer buf) {
+			this.buf = buf;
+		}
+		
+		@Override
+		public void write(int b) {
+			buf.put((byte)b);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+			buf.put(b, off, len);
+		}
+	}
+	
+	/**
+	 * Input stream reading from a byte buffer.
+	 */
+	private static class BufferInputStream extends InputStream {
+		
+		private ByteBuffer buf;
+		
+		private BufferInputStream(ByteBuffer buf) {
+			this.buf = buf;
+		}
+		
+		@Override
+		public int read() {
+			return buf.hasRemaining() ? (buf.get() & 0xFF) : -1;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) {
+			
+			if (len == 0) return 0;
+			if (!buf.hasRemaining()) return -1;
+			
+			len = Math.min(len, buf.remaining());
+			buf.get(b, off, len);
+			return len;
+		}
+		
+		@Override
+		public int available() {
+			return buf.remaining();
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package de.thkoeln.bibl.api.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Class implements the export of objects as newline-delimited JSON (JSON
+ * Lines), every object is written as single JSON object in a separate line.
+ * Specializing sub-classes must write the members of their specific types.
+ * 
+ * Instances of this class are not thread safe.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <T> the type of objects the writer can handle
+ */
+public abstract class JSONLinesWriter<T> implements Closeable, Flushable {
+	
+	private JSONWriter json;
+	
+	/**
+	 * Initialize a new JSONLinesWriter with the supplied writer.
+	 * 
+	 * @param out the writer to write the JSON lines to
+	 */
+	protected JSONLinesWriter(Writer out) {
+		json = new JSONWriter(out);
+	}
+	
+	/**
+	 * Initialize a new JSONLinesWriter writing UTF-8 encoded JSON lines to
+	 * the supplied output stream.
+	 * 
+	 * @param out the output stream to write the JSON lines to
+	 */
+	protected JSONLinesWriter(OutputStream out) {
+		json = new JSONWriter(out);
+	}
+	
+	/**
+	 * Writes the object as JSON line.
+	 * 
+	 * @param obj the object to write
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void write(T obj) throws IOException {
+		
+		json.beginObject();
+		writeMembers(json, obj);
+		json.endObject();
+		json.endLine();
+	}
+	
+	/**
+	 * Writes all supplied objects as JSON lines.
+	 * 
+	 * @param objs the objects to write
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void writeAll(Iterable<? extends T> objs) throws IOException {
+		for (T obj : objs) write(obj);
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		json.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		json.close();
+	}
+	
+	/**
+	 * Writes the members of the supplied object to the current JSON object.
+	 * 
+	 * @param json the JSON writer to write the members to
+	 * @param obj the object to write
+	 */
+	protected abstract void writeMembers(JSONWriter json, T obj);
+}
@@ -0,0 +1,358 @@
+package de.thkoeln.bibl.api.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Class implements a simple streaming JSON writer. The JSON data is written
+ * to a reusable character buffer, which is passed to the underlying writer
+ * when the buffer limit is reached, so no intermediate objects are created
+ * while writing.
+ * 
+ * The writer doesn't validate the structure of the written data, the caller
+ * is responsible for the correct nesting of objects and arrays.
+ * 
+ * Instances of this class are not thread safe.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class JSONWriter implements Closeable, Flushable {
+	
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+	
+	private static final int MAX_DEPTH = 32;
+	
+	private Writer out;
+	private char[] buf;
+	private int pos;
+	private int limit;
+	
+	// element count per nesting level, used for separators
+	private int[] count = new int[MAX_DEPTH];
+	private int depth;
+	private boolean afterName;
+	
+	/**
+	 * Initialize a new JSONWriter with the supplied writer and buffer limit.
+	 * 
+	 * @param out the writer to write the JSON data to
+	 * @param limit the number of characters buffered before the buffer is
+	 * written to the writer
+	 */
+	public JSONWriter(Writer out, int limit) {
+		this.out = out;
+		this.limit = limit;
+		this.buf = new char[limit + 256];
+	}
+	
+	/**
+	 * Initialize a new JSONWriter with the supplied writer and a buffer
+	 * limit of 8192 characters.
+	 * 
+	 * @param out the writer to write the JSON data to
+	 */
+	public JSONWriter(Writer out) {
+		this(out, 8192);
+	}
+	
+	/**
+	 * Initialize a new JSONWriter writing UTF-8 encoded JSON data to the
+	 * supplied output stream.
+	 * 
+	 * @param out the output stream to write the JSON data to
+	 */
+	public JSONWriter(OutputStream out) {
+		this(new OutputStreamWriter(out, Charset.forName("UTF-8")));
+	}
+	
+	/**
+	 * Begins a new JSON object.
+	 * 
+	 * @return this writer
+	 */
+	public JSONWriter beginObject() {
+		return begin('{');
+	}
+	
+	/**
+	 * Ends the current JSON object.
+	 * 
+	 * @return this writer
+	 */
+	public JSONWriter endObject() {
+		return end('}');
+	}
+	
+	/**
+	 * Begins a new JSON array.
+	 * 
+	 * @return this writer
+	 */
+	public JSONWriter beginArray() {
+		return begin('[');
+	}
+	
+	/**
+	 * Ends the current JSON array.
+	 * 
+	 * @return this writer
+	 */
+	public JSONWriter endArray() {
+		return end(']');
+	}
+	
+	/**
+	 * Writes the name of the next member of the current object.
+	 * 
+	 * @param name the member name
+	 * @return this writer
+	 */
+	public JSONWriter name(String name) {
+		
+		separate();
+		string(name);
+		put(':');
+		afterName = true;
+		return this;
+	}
+	
+	/**
+	 * Writes a String value, null values are written as JSON null.
+	 * 
+	 * @param value the value to write
+	 * @return this writer
+	 */
+	public JSONWriter value(String value) {
+		
+		separate();
+		if (value == null) append("null");
+		else string(value);
+		return this;
+	}
+	
+	/**
+	 * Writes a numeric value.
+	 * 
+	 * @param value the value to write
+	 * @return this writer
+	 */
+	public JSONWriter value(long value) {
+		
+		separate();
+		
+		// write digits in reverse order
+		if (value == Long.MIN_VALUE) {
+			append(Long.toString(value));
+			return this;
+		}
+		if (value < 0) {
+			put('-');
+			value = -value;
+		}
+		
+		int start = pos;
+		do {
+			put((char)('0' + value % 10));
+			value /= 10;
+		} while (value > 0);
+		
+		// reverse written digits
+		for (int i = start, j = pos - 1; i < j; i++, j--) {
+			char c = buf[i];
+			buf[i] = buf[j];
+			buf[j] = c;
+		}
+		return this;
+	}
+	
+	/**
+	 * Writes a boolean value.
+	 * 
+	 * @param value the value to write
+	 * @return this writer
+	 */
+	public JSONWriter value(boolean value) {
+		
+		separate();
+		append(value ? "true" : "false");
+		return this;
+	}
+	
+	/**
+	 * Writes a byte array as hex encoded String value, null values are
+	 * written as JSON null.
+	 * 
+	 * @param value the value to write
+	 * @return this writer
+	 */
+	public JSONWriter value(byte[] value) {
+		
+		separate();
+		if (value == null) {
+			append("null");
+			return this;
+		}
+		
+		put('"');
+		for (byte b : value) {
+			put(HEX[(b >> 4) & 0x0F]);
+			put(HEX[b & 0x0F]);
+		}
+		put('"');
+		return this;
+	}
+	
+	/**
+	 * Writes a JSON null value.
+	 * 
+	 * @return this writer
+	 */
+	public JSONWriter nullValue() {
+		
+		separate();
+		append("null");
+		return this;
+	}
+	
+	/**
+	 * Ends the current JSON record with a line break. The buffer is written
+	 * to the underlying writer if the buffer limit is reached.
+	 * 
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void endLine() throws IOException {
+		
+		put('\n');
+		
+		// reset state for next record
+		depth = 0;
+		count[0] = 0;
+		afterName = false;
+		
+		if (pos >= limit) drain();
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		drain();
+		out.close();
+	}
+	
+	/**
+	 * Begins a new nesting level with the supplied bracket.
+	 * 
+	 * @param bracket the opening bracket
+	 * @return this writer
+	 */
+	private JSONWriter begin(char bracket) {
+		
+		if (depth + 1 >= MAX_DEPTH) throw new IllegalStateException("nesting too deep");
+		
+		separate();
+		put(bracket);
+		count[++depth] = 0;
+		return this;
+	}
+	
+	/**
+	 * Ends the current nesting level with the supplied bracket.
+	 * 
+	 * @param bracket the closing bracket
+	 * @return this writer
+	 */
+	private JSONWriter end(char bracket) {
+		
+		if (depth == 0) throw new IllegalStateException("no open object or array");
+		
+		put(bracket);
+		depth--;
+		return this;
+	}
+	
+	/**
+	 * Writes the separator before a new element if required.
+	 */
+	private void separate() {
+		
+		// value of a named member
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+		if (count[depth]++ > 0 && depth > 0) put(',');
+	}
+	
+	/**
+	 * Writes an escaped JSON String.
+	 * 
+	 * @param value the String to write
+	 */
+	private void string(String value) {
+		
+		put('"');
+		for (int i = 0, len = value.length(); i < len; i++) {
+			
+			char c = value.charAt(i);
+			
+			switch (c) {
+				case '"': put('\\'); put('"'); break;
+				case '\\': put('\\'); put('\\'); break;
+				case '\n': put('\\'); put('n'); break;
+				case '\r': put('\\'); put('r'); break;
+				case '\t': put('\\'); put('t'); break;
+				default:
+					if (c < 0x20) {
+						// escape control characters
+						append("\\u00");
+						put(HEX[(c >> 4) & 0x0F]);
+						put(HEX[c & 0x0F]);
+					}
+					else put(c);
+			}
+		}
+		put('"');
+	}
+	
+	/**
+	 * Appends the supplied characters to the buffer.
+	 * 
+	 * @param value the characters to append
+	 */
+	private void append(String value) {
+		for (int i = 0, len = value.length(); i < len; i++) put(value.charAt(i));
+	}
+	
+	/**
+	 * Appends a single character to the buffer. The buffer is enlarged if
+	 * a single record exceeds the buffer size.
+	 * 
+	 * @param c the character to append
+	 */
+	private void put(char c) {
+		if (pos == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+		buf[pos++] = c;
+	}
+	
+	/**
+	 * Writes the buffer to the underlying writer.
+	 * 
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void drain() throws IOException {
+		out.write(buf, 0, pos);
+		pos = 0;
+	}
+}
@@ -0,0 +1,68 @@
+package de.thkoeln.bibl.api.io;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+/**
+ * Class implements the XML serializing by JAXB with cached JAXB contexts.
+ * Creating a JAXB context is expensive, so every context is created only
+ * once for a set of classes and reused for all later serializations.
+ * 
+ * JAXB contexts are thread safe, marshallers are created for every
+ * serialization.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class XMLSerializer {
+	
+	private static Map<List<Class<?>>, JAXBContext> contexts = new ConcurrentHashMap<>();
+	
+	/**
+	 * Returns the cached JAXB context for the supplied classes. The context
+	 * is created on first access.
+	 * 
+	 * @param classes the classes to be recognized by the context
+	 * @return the JAXB context
+	 * @throws JAXBException if the context could't created
+	 */
+	public static JAXBContext getContext(Class<?>... classes) throws JAXBException {
+		
+		List<Class<?>> key = Arrays.asList(classes);
+		JAXBContext ctx = contexts.get(key);
+		
+		// create and cache new context
+		if (ctx == null) {
+			ctx = JAXBContext.newInstance(classes);
+			contexts.put(key, ctx);
+		}
+		return ctx;
+	}
+	
+	/**
+	 * Serialize the object to an output stream as formatted XML
+	 * representation.
+	 * 
+	 * @param obj the object to serialize
+	 * @param out the output stream used for serializing the object
+	 * @param classes the classes to be recognized by the context, the
+	 * class of the object is used if no classes are supplied
+	 * @throws JAXBException if the object could't serialized
+	 */
+	public static void serialize(Object obj, OutputStream out, Class<?>... classes)
+			throws JAXBException {
+		
+		if (classes.length == 0) classes = new Class<?>[] {obj.getClass()};
+		
+		Marshaller marshaller = getContext(classes).createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+		marshaller.marshal(obj, out);
+	}
+}
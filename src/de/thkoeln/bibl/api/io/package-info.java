@@ -0,0 +1,4 @@
+/**
+ * 
+ */
+package de.thkoeln.bibl.api.io;
\ No newline at end of file
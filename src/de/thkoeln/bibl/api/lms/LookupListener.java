@@ -0,0 +1,37 @@
+package de.thkoeln.bibl.api.lms;
+
+import java.util.EventListener;
+
+import de.thkoeln.bibl.api.media.AbstractMediaNumber;
+import de.thkoeln.bibl.api.media.LibraryMedia;
+
+/**
+ * Listener interface for the results of a bulk media lookup. The
+ * listener is invoked for each ID as soon as it's lookup completed or
+ * failed, possibly by several threads in parallel.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <T> the type of media the listener can handle
+ */
+public interface LookupListener<T extends LibraryMedia<? extends AbstractMediaNumber>>
+		extends EventListener {
+	
+	/**
+	 * Invoked when the lookup of a media completed.
+	 * 
+	 * @param id the ID the lookup was performed for
+	 * @param media the media or null if no media was found
+	 */
+	public void lookupCompleted(String id, T media);
+	
+	/**
+	 * Invoked when the lookup of a media failed, e.g. because the LMS
+	 * returned an error for the ID. After an error of the connection
+	 * to the LMS, the listener is invoked for all remaining IDs.
+	 * 
+	 * @param id the ID the lookup was performed for
+	 * @param e the exception that caused the failure
+	 */
+	public void lookupFailed(String id, LMSException e);
+}
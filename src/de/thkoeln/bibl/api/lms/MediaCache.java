@@ -0,0 +1,306 @@
+package de.thkoeln.bibl.api.lms;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import de.thkoeln.bibl.api.media.AbstractMediaNumber;
+import de.thkoeln.bibl.api.media.LibraryMedia;
+
+/**
+ * Class implements a read-through cache in front of a Searchable, e.g.
+ * a SLNPClient. Media looked up or found by a search are cached by their
+ * ID, so a media detected several times is looked up only once.
+ * 
+ * Each lookup defines whether the circulation data of the media, like
+ * the borrow state, is needed. Circulation data changes frequently and
+ * expires after the circulation TTL, the bibliographic data expires after
+ * the longer bibliographic TTL. IDs without media are cached for the
+ * circulation TTL. The least recently used entry is removed if the
+ * capacity is exceeded.
+ * 
+ * Concurrent lookups of the same missing ID share a single lookup of
+ * the underlying Searchable. Searches always use the Searchable and
+ * update the cache with the found media. Each caller gets it's own copy
+ * of a cached media, so modifications don't affect the cache.
+ * 
+ * Instances of this class are thread safe.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <T> the type of media the cache holds
+ */
+public class MediaCache<T extends LibraryMedia<? extends AbstractMediaNumber>>
+		implements Searchable<T> {
+	
+	private final Searchable<T> source;
+	private final Map<String, CacheEntry> entries;
+	private final ConcurrentMap<String, FutureTask<T>> loading;
+	
+	private volatile long circulationTTL;
+	private volatile long bibliographicTTL;
+	
+	private long hits;
+	private long misses;
+	
+	/**
+	 * Initialize a new MediaCache with the supplied capacity. Circulation
+	 * data expires after 30 seconds, bibliographic data after 1 hour.
+	 * 
+	 * @param source the Searchable to lookup the media with
+	 * @param capacity the maximum number of cached media
+	 */
+	public MediaCache(Searchable<T> source, final int capacity) {
+		
+		if (capacity < 1)
+			throw new IllegalArgumentException("invalid capacity: " + capacity);
+		
+		this.source = source;
+		this.loading = new ConcurrentHashMap<>();
+		
+		// default values
+		circulationTTL = 30 * 1000;
+		bibliographicTTL = 60 * 60 * 1000;
+		
+		// LRU map removing the eldest entry
+		entries = new LinkedHashMap<String, CacheEntry>(capacity * 4 / 3 + 1, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the time circulation data stays valid.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public long getCirculationTTL() {
+		return circulationTTL;
+	}
+	
+	/**
+	 * Sets the time circulation data, like the borrow state or loan
+	 * ability, stays valid.
+	 * 
+	 * @param ttl the time in milliseconds
+	 */
+	public void setCirculationTTL(long ttl) {
+		circulationTTL = ttl;
+	}
+	
+	/**
+	 * Returns the time bibliographic data stays valid.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public long getBibliographicTTL() {
+		return bibliographicTTL;
+	}
+	
+	/**
+	 * Sets the time bibliographic data, like title, author or signature,
+	 * stays valid.
+	 * 
+	 * @param ttl the time in milliseconds
+	 */
+	public void setBibliographicTTL(long ttl) {
+		bibliographicTTL = ttl;
+	}
+	
+	/**
+	 * Returns the media with current circulation data.
+	 * 
+	 * @see #lookupMedia(String, boolean)
+	 */
+	@Override
+	public T lookupMedia(String id) throws LMSException {
+		return lookupMedia(id, true);
+	}
+	
+	/**
+	 * Returns the media specified by the ID or null if no media was found.
+	 * The cached media is returned, if it's not older than the circulation
+	 * TTL or, if no circulation data is needed, the bibliographic TTL.
+	 * 
+	 * @param id the unique ID to perform a lookup for
+	 * @param circulation true if the circulation data is needed
+	 * @return a library media object or null
+	 * @throws LMSException if a exception occurred in the LMS back-end
+	 * while looking up the media
+	 */
+	public T lookupMedia(String id, boolean circulation) throws LMSException {
+		
+		String key = id.trim();
+		long now = System.currentTimeMillis();
+		
+		synchronized (this) {
+			CacheEntry entry = entries.get(key);
+			
+			if (entry != null && entry.isValid(now, circulation)) {
+				hits++;
+				return copy(entry.media);
+			}
+			misses++;
+		}
+		return load(key);
+	}
+	
+	/**
+	 * Searches the media with the underlying Searchable and caches a
+	 * copy of the found media.
+	 */
+	@Override
+	public Map<String, T> searchMedia(String signature) throws LMSException {
+		
+		Map<String, T> media = source.searchMedia(signature);
+		long now = System.currentTimeMillis();
+		
+		synchronized (this) {
+			for (Map.Entry<String, T> m : media.entrySet())
+				entries.put(m.getKey().trim(), new CacheEntry(copy(m.getValue()), now));
+		}
+		return media;
+	}
+	
+	/**
+	 * Removes the media from the cache, e.g. after it was borrowed or
+	 * returned. A lookup in progress isn't cached.
+	 * 
+	 * @param id the ID of the media
+	 */
+	public synchronized void invalidate(String id) {
+		
+		String key = id.trim();
+		
+		entries.remove(key);
+		loading.remove(key);
+	}
+	
+	/**
+	 * Removes all media from the cache. Lookups in progress aren't cached.
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+		loading.clear();
+	}
+	
+	/**
+	 * Returns the number of cached media.
+	 * 
+	 * @return the number of cached media
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Returns the number of lookups answered by the cache.
+	 * 
+	 * @return the number of cache hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of lookups which required the Searchable.
+	 * 
+	 * @return the number of cache misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Looks up the media with the underlying Searchable and caches it.
+	 * If a lookup of the ID is already in progress, it's result is used.
+	 * 
+	 * @param key the trimmed ID
+	 * @return the media or null
+	 * @throws LMSException if the lookup failed
+	 */
+	private T load(final String key) throws LMSException {
+		
+		FutureTask<T> task = new FutureTask<>(new Callable<T>() {
+			@Override
+			public T call() throws LMSException {
+				return source.lookupMedia(key);
+			}
+		});
+		
+		FutureTask<T> running = loading.putIfAbsent(key, task);
+		
+		// lookup by this thread
+		if (running == null) {
+			running = task;
+			task.run();
+			
+			synchronized (this) {
+				// skip caching if invalidated meanwhile
+				if (loading.remove(key, task)) {
+					try { entries.put(key, new CacheEntry(task.get(), System.currentTimeMillis())); }
+					catch (InterruptedException | ExecutionException e) {}
+				}
+			}
+		}
+		
+		try { return copy(running.get()); }
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof LMSException) throw (LMSException) e.getCause();
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new LMSException("could not lookup media", e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LMSException("interrupted while looking up media", e);
+		}
+	}
+	
+	/**
+	 * Returns a copy of the supplied media.
+	 * 
+	 * @param media the media or null
+	 * @return the copy or null
+	 */
+	@SuppressWarnings("unchecked")
+	private T copy(T media) {
+		return (media != null) ? (T) media.copy() : null;
+	}
+	
+	/**
+	 * Cached media with the time of the lookup.
+	 */
+	private class CacheEntry {
+		
+		private final T media;
+		private final long time;
+		
+		private CacheEntry(T media, long time) {
+			this.media = media;
+			this.time = time;
+		}
+		
+		/**
+		 * Checks if the entry is still valid.
+		 * 
+		 * @param now the current time
+		 * @param circulation true if the circulation data is needed
+		 * @return true if the entry is valid
+		 */
+		private boolean isValid(long now, boolean circulation) {
+			
+			// IDs without media are valid as long as circulation data
+			long ttl = (circulation || media == null) ? circulationTTL : bibliographicTTL;
+			return now - time <= ttl;
+		}
+	}
+}
@@ -3,14 +3,43 @@ package de.thkoeln.bibl.api.lms.slnp;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.net.SocketException;
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import de.thkoeln.bibl.api.lms.LMSException;
+import de.thkoeln.bibl.api.lms.LookupListener;
 import de.thkoeln.bibl.api.lms.Searchable;
 import de.thkoeln.bibl.api.lms.slnp.MediaSearchRequest.SearchType;
+import de.thkoeln.bibl.api.lms.slnp.transfer.Pipeline;
 import de.thkoeln.bibl.api.media.AbstractMediaNumber;
 import de.thkoeln.bibl.api.media.MediaException;
 import de.thkoeln.bibl.api.media.SisisMedia;
@@ -20,6 +49,12 @@ import de.thkoeln.bibl.api.media.SisisMedia;
  * The class supports multiple SLNP connections to optimize the response
  * time for media lookups.
  * 
+ * Lookups and searches can be executed asynchronously, e.g. to lookup all
+ * media of a tag group in parallel. The requests run on an executor, by
+ * default a thread pool with one thread for each connection of the pool.
+ * Cancelling a running request closes it's connection, because the
+ * connection can't be reused with a pending response.
+ * 
  * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
  *
  * @param <N> the media number type the client creates
@@ -27,21 +62,15 @@ import de.thkoeln.bibl.api.media.SisisMedia;
 public class SLNPClient<N extends AbstractMediaNumber> 
 	implements Searchable<SisisMedia<N>> {
 	
-	/**
-	 * The connection status describes the actual state of a connection.
-	 */
-	private static enum ConStatus {
-		READY, BUSY;
-				
-		public boolean isReady() {
-			return (this == READY);
-		}
-	}
-	
 	private int searchLimit;
-	private int poolLimit;
-	private SLNPConnection refCon;
-	private Map<SLNPConnection, ConStatus> conPool;
+	private int searchParallelism;
+	private long requestTimeout;
+	private volatile int pipelineWindow;
+	private SLNPConnectionPool conPool;
+	private final ConcurrentMap<String, SharedRequest> sharedRequests;
+	private ExecutorService executor;
+	private ThreadPoolExecutor defaultExecutor;
+	private ScheduledExecutorService timer;
 	private final Constructor<N> mediaNrBuilder;
 	
 	/**
@@ -58,15 +87,15 @@ public class SLNPClient<N extends AbstractMediaNumber>
 	
 		// default values
 		searchLimit = 500;
-		poolLimit = 10;
+		searchParallelism = 1;
+		pipelineWindow = 1;
 		
 		// get media number constructor
 		mediaNrBuilder = mediaNrClass.getDeclaredConstructor(String.class);
 		
 		// initialize connection pool
-		conPool = new HashMap<>(poolLimit);
-		refCon = con;
-		conPool.put(refCon, ConStatus.READY);
+		conPool = new SLNPConnectionPool(con, 10);
+		sharedRequests = new ConcurrentHashMap<>();
 	}
 	
 	/**
@@ -126,13 +155,38 @@ public class SLNPClient<N extends AbstractMediaNumber>
 		searchLimit = limit;
 	}
 	
+	/**
+	 * Returns the number of pages a search requests in parallel.
+	 * 
+	 * @return the number of parallel page requests
+	 */
+	public int getSearchParallelism() {
+		return searchParallelism;
+	}
+	
+	/**
+	 * Sets the number of pages a search requests in parallel. If the first
+	 * page of a search is full, the following pages are requested in
+	 * parallel on several connections, until a page isn't full. Up to
+	 * parallelism - 1 pages may be requested needlessly at the end of
+	 * the search.
+	 * 
+	 * @param parallelism the number of parallel page requests, 1 to
+	 * request the pages one by one
+	 */
+	public void setSearchParallelism(int parallelism) {
+		
+		if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive");
+		searchParallelism = parallelism;
+	}
+	
 	/**
 	 * Returns the connection limit.
 	 * 
 	 * @return the connection limit
 	 */
 	public int getConnectionLimit() {
-		return poolLimit;
+		return conPool.getMaxSize();
 	}
 	
 	/**
@@ -140,8 +194,107 @@ public class SLNPClient<N extends AbstractMediaNumber>
 	 * 
 	 * @param limit maximum connections
 	 */
-	public void setConnectionLimit(int limit) {
-		poolLimit = limit;
+	public synchronized void setConnectionLimit(int limit) {
+		
+		conPool.setMaxSize(limit);
+		
+		// keep one thread for each connection
+		if (defaultExecutor != null) {
+			if (limit > defaultExecutor.getMaximumPoolSize()) {
+				defaultExecutor.setMaximumPoolSize(limit);
+				defaultExecutor.setCorePoolSize(limit);
+			}
+			else {
+				defaultExecutor.setCorePoolSize(limit);
+				defaultExecutor.setMaximumPoolSize(limit);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the connection pool to configure the wait, idle and
+	 * lifetime limits and to read the pool metrics.
+	 * 
+	 * @return the connection pool
+	 */
+	public SLNPConnectionPool getConnectionPool() {
+		return conPool;
+	}
+	
+	/**
+	 * Returns the number of pipelined requests per connection.
+	 * 
+	 * @return the pipeline window, 1 if requests aren't pipelined
+	 */
+	public int getPipelineWindow() {
+		return pipelineWindow;
+	}
+	
+	/**
+	 * Sets the number of requests a bulk lookup sends on a connection
+	 * without waiting for the responses. Pipelining reduces the impact of
+	 * the network latency, but requires a server processing the requests
+	 * of a connection in order. If a pipelined response fails, the window
+	 * is reset to 1 and the lookups are repeated one by one.
+	 * 
+	 * @param window the pipeline window, 1 to disable pipelining
+	 */
+	public void setPipelineWindow(int window) {
+		
+		if (window < 1) throw new IllegalArgumentException("window must be positive");
+		pipelineWindow = window;
+	}
+	
+	/**
+	 * Returns the executor running the asynchronous requests. If no executor
+	 * was set, a thread pool with one daemon thread for each connection
+	 * is created.
+	 * 
+	 * @return the executor
+	 */
+	public synchronized ExecutorService getExecutor() {
+		
+		if (executor == null) {
+			int limit = getConnectionLimit();
+			
+			defaultExecutor = new ThreadPoolExecutor(limit, limit, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("slnp-request"));
+			defaultExecutor.allowCoreThreadTimeOut(true);
+			executor = defaultExecutor;
+		}
+		return executor;
+	}
+	
+	/**
+	 * Sets the executor running the asynchronous requests. The executor
+	 * isn't shut down by the client.
+	 * 
+	 * @param executor the executor or null for the default thread pool
+	 */
+	public synchronized void setExecutor(ExecutorService executor) {
+		
+		if (defaultExecutor != null) defaultExecutor.shutdown();
+		defaultExecutor = null;
+		this.executor = executor;
+	}
+	
+	/**
+	 * Returns the timeout of asynchronous requests.
+	 * 
+	 * @return the timeout in milliseconds, 0 for no timeout
+	 */
+	public long getRequestTimeout() {
+		return requestTimeout;
+	}
+	
+	/**
+	 * Sets the timeout of asynchronous requests, including the time waiting
+	 * for execution. Requests not finished in time are cancelled.
+	 * 
+	 * @param timeout the timeout in milliseconds, 0 for no timeout
+	 */
+	public void setRequestTimeout(long timeout) {
+		requestTimeout = timeout;
 	}
 	
 	/**
@@ -152,8 +305,7 @@ public class SLNPClient<N extends AbstractMediaNumber>
 	 * underlying protocol, such as a TCP error
 	 */
 	public void setTimeout(int timeout) throws SocketException {
-		for (SLNPConnection c : getConnections())
-			c.setSoTimeout(timeout);
+		conPool.setTimeout(timeout);
 	}
 	
 	/**
@@ -163,7 +315,7 @@ public class SLNPClient<N extends AbstractMediaNumber>
 	 * @return a list of SLNPConnection objects
 	 */
 	public Set<SLNPConnection> getConnections() {
-		return conPool.keySet();
+		return conPool.getConnections();
 	}
 	
 	/**
@@ -180,12 +332,13 @@ public class SLNPClient<N extends AbstractMediaNumber>
 	}
 	
 	/**
-	 * Opens all underlying SLNP connections.
+	 * Opens a SLNP connection, if the pool has no idle connection.
+	 * Further connections are opened on demand.
 	 * 
 	 * @throws LMSException if an error occurred while opening the connection
 	 */
 	public void open() throws LMSException {
-		for (SLNPConnection c : getConnections()) c.open();
+		conPool.open();
 	}
 	
 	/**
@@ -194,26 +347,224 @@ public class SLNPClient<N extends AbstractMediaNumber>
 	 * @throws LMSException if an error occurred while closing the connection
 	 */
 	public void close() throws LMSException {
-		for (SLNPConnection c : getConnections()) c.close();
+		conPool.close();
 	}
 
 	@Override
 	public SisisMedia<N> lookupMedia(String id) throws LMSException {
-		// lookup media by unique ID
-		return requestMedia(id.trim(), 1, 1, SearchType.MEDIA_NUMBER).get(id.trim());
+		return lookupMedia(id, null);
 	}
 	
 	@Override
 	public Map<String, SisisMedia<N>> searchMedia(String signature) throws LMSException {
+		return searchMedia(signature, null);
+	}
+	
+	/**
+	 * Looks up the media asynchronously. The future returns the media or
+	 * null if no media was found.
+	 * 
+	 * @param id the unique ID to perform a lookup for
+	 * @return the future of the lookup
+	 * @see #lookupMedia(String)
+	 */
+	public Future<SisisMedia<N>> lookupMediaAsync(final String id) {
+		
+		return submit(new AsyncRequest<SisisMedia<N>>() {
+			@Override
+			public SisisMedia<N> call() throws LMSException {
+				return lookupMedia(id, this);
+			}
+		});
+	}
+	
+	/**
+	 * Searches the media asynchronously. The future returns the map of
+	 * media found by the signature.
+	 * 
+	 * @param signature the string to perform a search for
+	 * @return the future of the search
+	 * @see #searchMedia(String)
+	 */
+	public Future<Map<String, SisisMedia<N>>> searchMediaAsync(final String signature) {
+		
+		return submit(new AsyncRequest<Map<String, SisisMedia<N>>>() {
+			@Override
+			public Map<String, SisisMedia<N>> call() throws LMSException {
+				return searchMedia(signature, this);
+			}
+		});
+	}
+	
+	/**
+	 * Searches the media page by page. Each page holds up to search limit
+	 * media, a page is requested when the caller asks for it. If prefetch
+	 * is enabled, the next page is requested asynchronously on another
+	 * connection while the caller processes the current page.
+	 * 
+	 * @param signature the string to perform a search for
+	 * @param prefetch true to request one page ahead
+	 * @return the cursor to iterate the pages
+	 * @see #searchMedia(String)
+	 */
+	public SearchCursor searchMediaPages(String signature, boolean prefetch) {
+		return searchMediaPages(signature, prefetch ? 1 : 0);
+	}
+	
+	/**
+	 * Searches the media page by page. The supplied number of following
+	 * pages is requested asynchronously on other connections while the
+	 * caller processes the current page.
+	 * 
+	 * @param signature the string to perform a search for
+	 * @param prefetch the number of pages to request ahead
+	 * @return the cursor to iterate the pages
+	 * @see #searchMedia(String)
+	 */
+	public SearchCursor searchMediaPages(String signature, int prefetch) {
+		return new SearchCursor(signature.trim(), prefetch, null);
+	}
+	
+	/**
+	 * Looks up several media in parallel. Duplicate IDs are looked up once,
+	 * the lookups are distributed over up to connection limit threads.
+	 * IDs with a failed lookup, e.g. unknown IDs, are missing in the map.
+	 * 
+	 * @param ids the unique IDs to perform a lookup for
+	 * @return a map of the found media, indexed by the trimmed ID
+	 * @throws LMSException if the connection to the LMS failed
+	 */
+	public Map<String, SisisMedia<N>> lookupMedia(Collection<String> ids) throws LMSException {
+		return lookupMedia(ids, null);
+	}
+	
+	/**
+	 * Looks up several media in parallel. Duplicate IDs are looked up once,
+	 * the lookups are distributed over up to connection limit threads. The
+	 * listener is informed about each lookup as soon as it completed or
+	 * failed. A failed lookup of a single ID doesn't stop the other
+	 * lookups, only an error of the connection fails the whole call.
+	 * 
+	 * @param ids the unique IDs to perform a lookup for
+	 * @param listener the listener to inform or null
+	 * @return a map of the found media, indexed by the trimmed ID
+	 * @throws LMSException if the connection to the LMS failed
+	 */
+	public Map<String, SisisMedia<N>> lookupMedia(Collection<String> ids,
+			LookupListener<SisisMedia<N>> listener) throws LMSException {
+		
+		// the calling thread takes part in the lookups
+		return new BulkLookup(ids, listener).call();
+	}
+	
+	/**
+	 * Looks up several media asynchronously. The future returns the map of
+	 * the found media, indexed by the trimmed ID.
+	 * 
+	 * @param ids the unique IDs to perform a lookup for
+	 * @param listener the listener to inform or null
+	 * @return the future of the lookups
+	 * @see #lookupMedia(Collection, LookupListener)
+	 */
+	public Future<Map<String, SisisMedia<N>>> lookupMediaAsync(Collection<String> ids,
+			LookupListener<SisisMedia<N>> listener) {
+		
+		return submit(new BulkLookup(ids, listener));
+	}
+	
+	/**
+	 * Submits an asynchronous request to the executor and schedules it's
+	 * cancellation if a request timeout is set.
+	 * 
+	 * @param req the request to submit
+	 * @return the future of the request
+	 */
+	private <V> AsyncTask<V> submit(AsyncRequest<V> req) {
+		return submit(req, requestTimeout);
+	}
+	
+	/**
+	 * Submits an asynchronous request to the executor and schedules it's
+	 * cancellation after the timeout.
+	 * 
+	 * @param req the request to submit
+	 * @param timeout the timeout in milliseconds, 0 for no timeout
+	 * @return the future of the request
+	 */
+	private <V> AsyncTask<V> submit(AsyncRequest<V> req, long timeout) {
+		
+		final AsyncTask<V> task = new AsyncTask<>(req);
+		
+		getExecutor().execute(task);
+		if (timeout > 0) task.timeout = getTimer().schedule(new Runnable() {
+			@Override
+			public void run() {
+				task.cancel(true);
+			}
+		}, timeout, TimeUnit.MILLISECONDS);
+		
+		return task;
+	}
+	
+	/**
+	 * Returns the timer cancelling requests after the request timeout.
+	 * 
+	 * @return the timer
+	 */
+	private synchronized ScheduledExecutorService getTimer() {
+		
+		if (timer == null) {
+			ScheduledThreadPoolExecutor t = new ScheduledThreadPoolExecutor(1,
+					new DaemonThreadFactory("slnp-timeout"));
+			t.setRemoveOnCancelPolicy(true);
+			timer = t;
+		}
+		return timer;
+	}
+	
+	/**
+	 * Looks up a media by the unique ID.
+	 * 
+	 * @param id the unique ID to perform a lookup for
+	 * @param req the asynchronous request or null
+	 * @return the media or null
+	 * @throws LMSException if a LMS related error occurred
+	 */
+	private SisisMedia<N> lookupMedia(String id, AsyncRequest<?> req) throws LMSException {
+		// lookup media by unique ID
+		return requestMedia(id.trim(), 1, 1, SearchType.MEDIA_NUMBER, req).get(id.trim());
+	}
+	
+	/**
+	 * Searches media by signature, the media are requested in chunks of
+	 * the search limit.
+	 * 
+	 * @param signature the string to perform a search for
+	 * @param req the asynchronous request or null
+	 * @return a map of media
+	 * @throws LMSException if a LMS related error occurred
+	 */
+	private Map<String, SisisMedia<N>> searchMedia(String signature, AsyncRequest<?> req)
+			throws LMSException {
+		
+		// request following pages in parallel, merged in order of the hits
+		if (searchParallelism > 1) {
+			Map<String, SisisMedia<N>> media = new LinkedHashMap<>();
+			
+			try (SearchCursor cur = new SearchCursor(signature.trim(), searchParallelism - 1, req)) {
+				while (cur.hasNext()) media.putAll(cur.next());
+			}
+			return media;
+		}
 		
 		int hitStart = 1;
-		Map<String, SisisMedia<N>> media = new HashMap<>();
+		Map<String, SisisMedia<N>> media = new LinkedHashMap<>();
 		
 		// request media in small chunks
 		while(true) {
 			// lookup media by signature
 			Map<String, SisisMedia<N>> re = 
-					requestMedia(signature.trim(), searchLimit, hitStart, SearchType.SIGNATURE);
+					requestMedia(signature.trim(), searchLimit, hitStart, SearchType.SIGNATURE, req);
 			
 			// stop if last request was empty
 			if (re.isEmpty()) break;
@@ -276,29 +627,81 @@ public class SLNPClient<N extends AbstractMediaNumber>
 	}
 
 	/**
-	 * Request media information specified by search string. Returns a map of found
-	 * media object which where found by the the search string, indexed by the media-id.
+	 * Request media information specified by search string. Concurrent
+	 * requests with the same search string, type and hit range share a
+	 * single SLNP request. The response is shared, each caller creates
+	 * it's own media objects from it.
 	 * 
 	 * @param searchStr the search string to lookup media for
 	 * @param hitMax the maximum hits the result should have
 	 * @param hitStart start index in the hits
 	 * @param type specifies the type of search
-	 * @return vector with media objects
+	 * @param async the asynchronous request or null
+	 * @return map with media objects
 	 * @throws LMSException if a LMS related error occurred
-	 * @throws SLNPException if a SLNP related error occurred
 	 */
-	private Map<String, SisisMedia<N>> requestMedia(String searchStr, int hitMax, 
-			int hitStart, SearchType type) throws LMSException, SLNPException {
+	private Map<String, SisisMedia<N>> requestMedia(final String searchStr, final int hitMax,
+			final int hitStart, final SearchType type, final AsyncRequest<?> async) 
+			throws LMSException {
 		
-		// get a ready SLNP connection
-		SLNPConnection con = getConnection();
-		if (con == null) throw new SLNPException("all connections busy");
+		String key = type + ":" + hitStart + ":" + Math.max(hitMax, 1) + ":" + searchStr;
 		
+		while (true) {
+			
+			SharedRequest req = new SharedRequest(async, new Callable<MediaSearchResponse>() {
+				@Override
+				public MediaSearchResponse call() throws LMSException {
+					return exchangeMedia(searchStr, hitMax, hitStart, type, async);
+				}
+			});
+			
+			SharedRequest running = sharedRequests.putIfAbsent(key, req);
+			
+			// request by this thread
+			if (running == null) {
+				try { req.run(); }
+				finally { sharedRequests.remove(key, req); }
+				running = req;
+			}
+			
+			try { return createMedia(running.get()); }
+			catch (ExecutionException e) {
+				// repeat if the shared request of another caller was cancelled
+				if (running != req && running.owner != null && running.owner.isAborted()) continue;
+				throw getCause(e);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SLNPException("interrupted while waiting for request", e);
+			}
+		}
+	}
+	
+	/**
+	 * Sends a single SLNP request for media information specified by search string.
+	 * Returns the parsed response of the request.
+	 * 
+	 * @param searchStr the search string to lookup media for
+	 * @param hitMax the maximum hits the result should have
+	 * @param hitStart start index in the hits
+	 * @param type specifies the type of search
+	 * @param async the asynchronous request or null
+	 * @return the parsed response
+	 * @throws LMSException if a LMS related error occurred
+	 */
+	private MediaSearchResponse exchangeMedia(String searchStr, int hitMax, 
+			int hitStart, SearchType type, AsyncRequest<?> async) throws LMSException {
+		
+		// get a ready SLNP connection, waits if all connections busy
+		SLNPConnection con = conPool.acquire();
 		MediaSearchResponse res = null;
 		
 		try {
 			MediaSearchRequest req;
 			
+			// register connection to close it on cancel
+			if (async != null) async.attach(con);
+			
 			// verify a valid hit count
 			if (hitMax < 1) hitMax = 1;
 			
@@ -315,18 +718,36 @@ public class SLNPClient<N extends AbstractMediaNumber>
 			res.parse();
 		}
 		catch (Exception e) {
+			// stream state of the connection is unknown
+			conPool.invalidate(con);
 			throw new LMSException("could not lookup media", e);
 		}
 		finally {
-			releaseConnection(con);
+			if (async != null) async.detach();
+			conPool.release(con);
 		}
 		
+		return res;
+	}
+	
+	/**
+	 * Creates the media objects of a parsed media search response, indexed
+	 * by the media-id.
+	 * 
+	 * @param res the parsed response
+	 * @return map with media objects
+	 * @throws SLNPException if the response wasn't successful or a media
+	 * object could't be created
+	 */
+	private Map<String, SisisMedia<N>> createMedia(MediaSearchResponse res)
+			throws SLNPException {
+		
 		// check for response errors
-		if (!res.isSuccessful()) throw new SLNPException(
-				"slnp protocol error: " + res.getError());
+		if (!res.isSuccessful()) throw new ResponseException(
+				"slnp protocol error: " + res.getError(), null);
 		
 		// create new vector for media objects
-		HashMap<String, SisisMedia<N>> media = new HashMap<>(res.getDataSet().size());
+		Map<String, SisisMedia<N>> media = new LinkedHashMap<>(res.getDataSet().size() * 4 / 3 + 1);
 		
 		// build for every data set a new media object
 		for (Entry<String, Map<String, String>> elm : res.getEntrySet()) {
@@ -334,8 +755,8 @@ public class SLNPClient<N extends AbstractMediaNumber>
 			String id = elm.getKey();
 			// create media object and add to map
 			try { media.put(id, createMedia(id, elm.getValue())); }
-			catch(MediaException e) {
-				throw new LMSException("could not create media object", e);
+			catch(MediaException | RuntimeException e) {
+				throw new ResponseException("could not create media object", e);
 			}
 		}
 		
@@ -343,45 +764,525 @@ public class SLNPClient<N extends AbstractMediaNumber>
 	}
 	
 	/**
-	 * Returns a ready connection from the pool. The returned connection
-	 * is exclusively reserved until its released with releaseConnection().
+	 * Returns the LMS exception causing the execution exception of a request.
+	 * 
+	 * @param e the execution exception
+	 * @return the causing LMS exception
+	 * @throws RuntimeException if the request failed with a runtime exception
+	 */
+	private static LMSException getCause(ExecutionException e) {
+		
+		if (e.getCause() instanceof LMSException) return (LMSException) e.getCause();
+		if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+		return new LMSException("could not lookup media", e.getCause());
+	}
+	
+	/**
+	 * Cursor of a media search, which requests the media page by page.
+	 * A cursor is used by a single thread and should be closed to cancel
+	 * prefetched pages, if not all pages are read.
+	 * 
+	 * The prefetched pages are requested speculatively, as long as the
+	 * received pages are full. Once a page isn't full, the prefetched
+	 * pages behind it are cancelled.
+	 */
+	public class SearchCursor implements AutoCloseable {
+		
+		private final String signature;
+		private final int prefetch;
+		private final int limit;
+		private final AsyncRequest<?> owner;
+		private final Queue<AsyncTask<Map<String, SisisMedia<N>>>> pending;
+		private int hitStart;
+		private int requested;
+		private boolean last;
+		private Map<String, SisisMedia<N>> page;
+		
+		/**
+		 * Initialize a new SearchCursor.
+		 * 
+		 * @param signature the string to perform a search for
+		 * @param prefetch the number of pages to request ahead
+		 * @param owner the asynchronous request using the cursor or null
+		 */
+		private SearchCursor(String signature, int prefetch, AsyncRequest<?> owner) {
+			
+			if (prefetch < 0) throw new IllegalArgumentException("invalid prefetch: " + prefetch);
+			
+			this.signature = signature;
+			this.prefetch = prefetch;
+			this.limit = searchLimit;
+			this.owner = owner;
+			this.pending = new ArrayDeque<>(prefetch);
+			this.hitStart = 1;
+			this.requested = 1;
+		}
+		
+		/**
+		 * Checks if a further page with media is available. The page is
+		 * requested, if it's not already received.
+		 * 
+		 * @return true if a further page is available
+		 * @throws LMSException if the page request failed
+		 */
+		public boolean hasNext() throws LMSException {
+			
+			if (page == null && !last) page = fetch();
+			return page != null && !page.isEmpty();
+		}
+		
+		/**
+		 * Returns the next page of media, indexed by the media-id.
+		 * 
+		 * @return the media of the page
+		 * @throws LMSException if the page request failed
+		 * @throws NoSuchElementException if there is no further page
+		 */
+		public Map<String, SisisMedia<N>> next() throws LMSException {
+			
+			if (!hasNext()) throw new NoSuchElementException();
+			
+			Map<String, SisisMedia<N>> re = page;
+			page = null;
+			
+			return re;
+		}
+		
+		/**
+		 * Returns the hit index of the next page.
+		 * 
+		 * @return the hit index, starting at 1
+		 */
+		public int getHitStart() {
+			return hitStart;
+		}
+		
+		/**
+		 * Closes the cursor and cancels the prefetched pages still queued.
+		 * Pages already in progress are completed, so their connections
+		 * are released to the pool, and their results are dropped.
+		 */
+		@Override
+		public void close() {
+			
+			last = true;
+			page = null;
+			
+			AsyncTask<?> f;
+			while ((f = pending.poll()) != null) f.discard();
+		}
+		
+		/**
+		 * Receives the page at the current hit index and requests the
+		 * following pages, if prefetch is enabled.
+		 * 
+		 * @return the received page
+		 * @throws LMSException if the page request failed
+		 */
+		private Map<String, SisisMedia<N>> fetch() throws LMSException {
+			
+			Map<String, SisisMedia<N>> re;
+			AsyncTask<Map<String, SisisMedia<N>>> f = pending.poll();
+			
+			if (f != null) {
+				// request the page by this thread if it's still queued
+				f.run();
+				
+				try { re = f.get(); }
+				catch (ExecutionException e) {
+					close();
+					throw getCause(e);
+				}
+				catch (CancellationException e) {
+					// cancelled, e.g. by the request timeout
+					close();
+					throw new SLNPException("page request cancelled", e);
+				}
+				catch (InterruptedException e) {
+					close();
+					Thread.currentThread().interrupt();
+					throw new SLNPException("interrupted while waiting for page", e);
+				}
+			}
+			else {
+				re = requestMedia(signature, limit, requested, SearchType.SIGNATURE, owner);
+				requested += limit;
+			}
+			
+			hitStart += re.size();
+			
+			// stop if page was empty or less than search limit
+			if (re.size() < limit) {
+				close();
+				return re;
+			}
+			
+			// keep the prefetched pages requested
+			while (pending.size() < prefetch) {
+				final int start = requested;
+				
+				pending.add(submit(new AsyncRequest<Map<String, SisisMedia<N>>>() {
+					@Override
+					public Map<String, SisisMedia<N>> call() throws LMSException {
+						return requestMedia(signature, limit, start, SearchType.SIGNATURE, this);
+					}
+				}));
+				requested += limit;
+			}
+			return re;
+		}
+	}
+	
+	/**
+	 * SLNP request shared by concurrent callers with the same request.
+	 */
+	private class SharedRequest extends FutureTask<MediaSearchResponse> {
+		
+		private final AsyncRequest<?> owner;
+		
+		/**
+		 * Initialize a new SharedRequest.
+		 * 
+		 * @param owner the asynchronous request performing the request or null
+		 * @param call the request
+		 */
+		private SharedRequest(AsyncRequest<?> owner, Callable<MediaSearchResponse> call) {
+			super(call);
+			this.owner = owner;
+		}
+	}
+	
+	/**
+	 * Asynchronous request, which knows the connection it's using.
+	 * 
+	 * @param <V> the result type of the request
+	 */
+	private static abstract class AsyncRequest<V> implements Callable<V> {
+		
+		private SLNPConnection con;
+		private boolean aborted;
+		
+		/**
+		 * Registers the connection used by the request.
+		 * 
+		 * @param con the connection
+		 * @throws SLNPException if the request was aborted
+		 */
+		private synchronized void attach(SLNPConnection con) throws SLNPException {
+			if (aborted) throw new SLNPException("request cancelled");
+			this.con = con;
+		}
+		
+		/**
+		 * Unregisters the connection used by the request.
+		 */
+		private synchronized void detach() {
+			con = null;
+		}
+		
+		/**
+		 * Aborts the request and closes the connection in use, so a
+		 * blocked read returns and the connection is invalidated.
+		 */
+		protected synchronized void abort() {
+			
+			aborted = true;
+			
+			try { if (con != null) con.close(); }
+			catch (LMSException e) {}
+		}
+		
+		/**
+		 * Checks if the request was aborted.
+		 * 
+		 * @return true if the request was aborted
+		 */
+		protected synchronized boolean isAborted() {
+			return aborted;
+		}
+	}
+	
+	/**
+	 * Bulk lookup of several media. The IDs are taken from a shared queue
+	 * by the request itself and by worker requests, one for each further
+	 * connection. The bulk lookup waits for the lookups in progress, so
+	 * workers still queued in the executor don't block it.
 	 * 
-	 * @return ready connection or null if no connection ready 
-	 * and maximum pool size reached.
-	 * @throws LMSException if a connection could not opened
+	 * Errors of the response for an ID are reported for that ID only.
+	 * After any other error the remaining IDs are reported as failed and
+	 * the bulk lookup fails.
 	 */
-	private synchronized SLNPConnection getConnection() throws LMSException {
+	private class BulkLookup extends AsyncRequest<Map<String, SisisMedia<N>>> {
+		
+		private final Queue<String> queue;
+		private final CountDownLatch remaining;
+		private final Map<String, SisisMedia<N>> media;
+		private final LookupListener<SisisMedia<N>> listener;
+		private final AtomicReference<Exception> error;
+		private final List<Future<Void>> workers;
+		
+		/**
+		 * Initialize a new BulkLookup.
+		 * 
+		 * @param ids the IDs to lookup
+		 * @param listener the listener to inform or null
+		 */
+		private BulkLookup(Collection<String> ids, LookupListener<SisisMedia<N>> listener) {
+			
+			Set<String> unique = new LinkedHashSet<>();
+			for (String id : ids) unique.add(id.trim());
+			
+			this.queue = new ConcurrentLinkedQueue<>(unique);
+			this.remaining = new CountDownLatch(unique.size());
+			this.media = new ConcurrentHashMap<>();
+			this.listener = listener;
+			this.error = new AtomicReference<>();
+			this.workers = new CopyOnWriteArrayList<>();
+		}
+		
+		@Override
+		public Map<String, SisisMedia<N>> call() throws LMSException {
+			
+			int count = Math.min(getConnectionLimit(), queue.size());
+			
+			// start a worker for each further connection
+			for (int i = 1; i < count; i++) workers.add(submit(new AsyncRequest<Void>() {
+				@Override
+				public Void call() {
+					lookup(this);
+					return null;
+				}
+			}, 0));
+			
+			lookup(this);
+			
+			try { remaining.await(); }
+			catch (InterruptedException e) {
+				abort();
+				Thread.currentThread().interrupt();
+				throw new SLNPException("interrupted while looking up media", e);
+			}
+			
+			Exception e = error.get();
+			
+			if (e instanceof LMSException) throw (LMSException) e;
+			if (e instanceof RuntimeException) throw (RuntimeException) e;
+			
+			return new HashMap<>(media);
+		}
+		
+		@Override
+		protected void abort() {
+			
+			super.abort();
+			for (Future<Void> w : workers) w.cancel(true);
+		}
 		
-		// search for ready connection
-		for (Entry<SLNPConnection, ConStatus> elm : conPool.entrySet())
-			if (elm.getValue().isReady()) {
-				// verify connection is connected
-				elm.getKey().open();
-				// mark connection as busy
-				elm.setValue(ConStatus.BUSY);
-				// return connection
-				return elm.getKey();
+		/**
+		 * Looks up the queued IDs until the queue is empty. After an error
+		 * of the connection or abort the remaining IDs are skipped.
+		 * 
+		 * @param req the request performing the lookups
+		 */
+		private void lookup(AsyncRequest<?> req) {
+			
+			// pipelined lookups, remaining IDs are looked up one by one
+			if (pipelineWindow > 1) lookupPipelined(req);
+			
+			String id;
+			
+			while ((id = queue.poll()) != null) {
+				try {
+					if (isAborted()) continue;
+					if (error.get() != null) failed(id, error.get());
+					else completed(id, lookupMedia(id, req));
+				}
+				catch (ResponseException e) {
+					failed(id, e);
+				}
+				catch (LMSException | RuntimeException e) {
+					error.compareAndSet(null, e);
+					failed(id, e);
+				}
+				finally {
+					remaining.countDown();
+				}
 			}
+		}
 		
-		// check maximum pool size not reached
-		if (conPool.size() >= poolLimit) return null;
+		/**
+		 * Looks up the queued IDs with pipelined requests on a single
+		 * connection. Error responses fail their ID only. If a response is
+		 * incomplete, can't be received or parsed or belongs to another
+		 * ID, the pending IDs are queued again and pipelining is disabled.
+		 * 
+		 * @param req the request performing the lookups
+		 */
+		private void lookupPipelined(AsyncRequest<?> req) {
+			
+			Queue<String> sent = new ArrayDeque<>();
+			SLNPConnection con;
+			
+			try { con = conPool.acquire(); }
+			catch (LMSException e) {
+				return;
+			}
+			
+			boolean failed = true;
+			
+			try {
+				req.attach(con);
+				
+				Pipeline<MediaSearchResponse> pipe = new Pipeline<>(con, pipelineWindow);
+				
+				while (error.get() == null && !isAborted()) {
+					
+					String id;
+					
+					// fill the window
+					while (!pipe.isFull() && (id = queue.poll()) != null) {
+						pipe.send(new MediaSearchRequest(con, con.getCredentials(), id),
+								new MediaSearchResponse(con));
+						sent.add(id);
+					}
+					
+					if (sent.isEmpty()) break;
+					
+					MediaSearchResponse res = pipe.receive();
+					res.parse();
+					
+					id = sent.peek();
+					Map<String, SisisMedia<N>> found = null;
+					
+					// error responses only fail the requested ID
+					try { found = createMedia(res); }
+					catch (ResponseException e) {
+						failed(id, e);
+					}
+					
+					// the server may not support pipelining
+					if (found != null && !found.isEmpty() && !found.containsKey(id))
+						throw new SLNPException("pipelined response doesn't match request: " + id);
+					
+					sent.poll();
+					if (found != null) completed(id, found.get(id));
+					remaining.countDown();
+				}
+				
+				// responses still pending after an error or abort
+				failed = !sent.isEmpty();
+				queue.addAll(sent);
+			}
+			catch (Exception e) {
+				// fall back to single requests
+				if (!isAborted()) pipelineWindow = 1;
+				queue.addAll(sent);
+			}
+			finally {
+				req.detach();
+				
+				if (failed) conPool.invalidate(con);
+				else conPool.release(con);
+			}
+		}
 		
-		// create new connection if all connections busy
-		SLNPConnection con = new SLNPConnection(refCon);
-		// open connection
-		con.open();
-		// add connection to pool
-		conPool.put(con, ConStatus.BUSY);
+		/**
+		 * Stores the result of a lookup and informs the listener.
+		 * 
+		 * @param id the ID the lookup was performed for
+		 * @param m the media or null if no media was found
+		 */
+		private void completed(String id, SisisMedia<N> m) {
+			
+			if (m != null) media.put(id, m);
+			if (listener != null) listener.lookupCompleted(id, m);
+		}
 		
-		return con;
+		/**
+		 * Informs the listener about a failed lookup.
+		 * 
+		 * @param id the ID the lookup was performed for
+		 * @param e the exception that caused the failure
+		 */
+		private void failed(String id, Exception e) {
+			
+			if (listener == null) return;
+			
+			listener.lookupFailed(id, (e instanceof LMSException) ? (LMSException) e
+					: new LMSException("could not lookup media", e));
+		}
 	}
 	
 	/**
-	 * Releases a connection for new task.
+	 * Future of an asynchronous request, which aborts the request on cancel.
 	 * 
-	 * @param con the connection to be released
+	 * @param <V> the result type of the request
+	 */
+	private static class AsyncTask<V> extends FutureTask<V> {
+		
+		private final AsyncRequest<V> req;
+		private volatile ScheduledFuture<?> timeout;
+		
+		private AsyncTask(AsyncRequest<V> req) {
+			super(req);
+			this.req = req;
+		}
+		
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			
+			boolean re = super.cancel(mayInterruptIfRunning);
+			if (re) req.abort();
+			
+			return re;
+		}
+		
+		/**
+		 * Cancels the task without aborting the request. A queued task
+		 * doesn't run anymore, a running request completes and releases
+		 * it's connection, but the result is dropped.
+		 */
+		private void discard() {
+			super.cancel(false);
+		}
+		
+		@Override
+		protected void done() {
+			if (timeout != null) timeout.cancel(false);
+		}
+	}
+	
+	/**
+	 * Exception for an error of a complete response, which affects only
+	 * the requested media and not the connection.
 	 */
-	private synchronized void releaseConnection(SLNPConnection con) {
-		conPool.put(con, ConStatus.READY);
+	private static class ResponseException extends SLNPException {
+		
+		private static final long serialVersionUID = 4329108416395512517L;
+		
+		private ResponseException(String msg, Throwable source) {
+			super(msg, source);
+		}
+	}
+	
+	/**
+	 * Thread factory creating named daemon threads.
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+		
+		private final String name;
+		private final AtomicInteger count = new AtomicInteger();
+		
+		private DaemonThreadFactory(String name) {
+			this.name = name;
+		}
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			
+			Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
 	}
 }
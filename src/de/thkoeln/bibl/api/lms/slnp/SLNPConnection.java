@@ -6,6 +6,7 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 
 import de.thkoeln.bibl.api.lms.Connectable;
 import de.thkoeln.bibl.api.lms.LMSException;
@@ -76,13 +77,17 @@ public class SLNPConnection implements Connectable {
 	
 	/**
 	 * Initialize a SLNPConnection with the supplied SLNPConnection object.
-	 * The login credentials and server address is used from the supplied
-	 * SLNPConnection object.
+	 * The login credentials, server address, socket timeout and encoding
+	 * is used from the supplied SLNPConnection object.
 	 * 
 	 * @param con the SLNPConnection to use the connection information from
 	 */
 	public SLNPConnection(SLNPConnection con) {
+		
 		this(con.getAddress(), con.getCredentials());
+		
+		socketTimeout = con.socketTimeout;
+		encoding = con.encoding;
 	}
 	
 	/**
@@ -127,6 +132,9 @@ public class SLNPConnection implements Connectable {
 			
 			// set reading timeout
 			socket.setSoTimeout(socketTimeout);
+			
+			// send pipelined requests without delay
+			socket.setTcpNoDelay(true);
 		
 			// connect to SLNP server
 			socket.connect(address);
@@ -185,6 +193,36 @@ public class SLNPConnection implements Connectable {
 				&& socket.isConnected();
 	}
 	
+	/**
+	 * Checks if the connection is still usable. The connection must be
+	 * connected and the server must not have closed the stream, no
+	 * pending data is expected between two requests.
+	 * 
+	 * @return true if the connection is usable
+	 */
+	public boolean isValid() {
+		
+		if (!isConnected()) return false;
+		
+		try {
+			if (in.available() > 0) return false;
+			
+			// probe the stream, a closed stream returns immediately
+			socket.setSoTimeout(1);
+			try { in.read(); }
+			finally { socket.setSoTimeout(socketTimeout); }
+			
+			// end of stream or unexpected data
+			return false;
+		}
+		catch (SocketTimeoutException e) {
+			return true;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+	
 	/**
 	 * Initiates a connection request and validates the response.
 	 * 
@@ -0,0 +1,581 @@
+package de.thkoeln.bibl.api.lms.slnp;
+
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.thkoeln.bibl.api.lms.LMSException;
+
+/**
+ * Class implements a pool of SLNP connections. The pool opens new
+ * connections on demand up to the maximum pool size, all connections
+ * are copies of a reference connection.
+ * 
+ * Idle connections are kept in a lock-free queue, the most recently used
+ * connection is reused first. If all connections are in use, a caller
+ * waits up to the maximum wait time for a released connection, callers
+ * are served in order of arrival. Connections are opened outside of any
+ * lock, so a slow connect or login doesn't block other callers.
+ * 
+ * Idle connections are validated on borrow and closed if they exceed
+ * the maximum idle time or lifetime. Connections with a failed transfer
+ * should be returned by invalidate(), because their stream state is
+ * unknown.
+ * 
+ * New connections use the socket timeout of the reference connection,
+ * unless a timeout is set for the pool. A closed pool rejects acquire()
+ * until it's opened again.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class SLNPConnectionPool {
+	
+	private final SLNPConnection refCon;
+	
+	private final ConcurrentLinkedDeque<PooledConnection> idle;
+	private final ConcurrentMap<SLNPConnection, PooledConnection> pool;
+	private final PoolSemaphore permits;
+	
+	private volatile int maxSize;
+	private volatile long maxWait;
+	private volatile long maxIdleTime;
+	private volatile long maxLifetime;
+	private volatile long validationInterval;
+	private volatile int timeout;
+	private volatile long lastEviction;
+	private volatile boolean closed;
+	
+	private final AtomicInteger active;
+	private final AtomicLong borrowed;
+	private final AtomicLong created;
+	private final AtomicLong destroyed;
+	private final AtomicLong timeouts;
+	private final AtomicLong waitTime;
+	
+	/**
+	 * Initialize a SLNPConnectionPool with the supplied reference
+	 * connection. The reference connection is not used itself, the pool
+	 * opens copies of it.
+	 * 
+	 * @param refCon the connection to copy the connection information from
+	 * @param maxSize the maximum number of connections
+	 */
+	public SLNPConnectionPool(SLNPConnection refCon, int maxSize) {
+		
+		this.refCon = refCon;
+		this.maxSize = maxSize;
+		
+		// default values
+		maxWait = 2000;
+		maxIdleTime = 10 * 60 * 1000;
+		maxLifetime = 60 * 60 * 1000;
+		validationInterval = 5000;
+		timeout = -1;
+		lastEviction = System.currentTimeMillis();
+		
+		idle = new ConcurrentLinkedDeque<>();
+		pool = new ConcurrentHashMap<>(maxSize);
+		permits = new PoolSemaphore(maxSize);
+		
+		active = new AtomicInteger();
+		borrowed = new AtomicLong();
+		created = new AtomicLong();
+		destroyed = new AtomicLong();
+		timeouts = new AtomicLong();
+		waitTime = new AtomicLong();
+	}
+	
+	/**
+	 * Returns the maximum number of connections.
+	 * 
+	 * @return the maximum number of connections
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * Sets the maximum number of connections. If the pool is reduced,
+	 * surplus connections are closed on release.
+	 * 
+	 * @param size the maximum number of connections
+	 */
+	public synchronized void setMaxSize(int size) {
+		
+		if (size < 1) throw new IllegalArgumentException("pool size must be positive");
+		
+		if (size > maxSize) permits.release(size - maxSize);
+		else permits.reducePermits(maxSize - size);
+		maxSize = size;
+	}
+	
+	/**
+	 * Returns the maximum time to wait for a connection.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public long getMaxWait() {
+		return maxWait;
+	}
+	
+	/**
+	 * Sets the maximum time to wait for a connection if all connections
+	 * are in use.
+	 * 
+	 * @param maxWait the time in milliseconds, 0 to fail immediately
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+	
+	/**
+	 * Returns the maximum time a connection stays idle.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public long getMaxIdleTime() {
+		return maxIdleTime;
+	}
+	
+	/**
+	 * Sets the maximum time a connection stays idle before it's closed.
+	 * 
+	 * @param maxIdleTime the time in milliseconds
+	 */
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+	
+	/**
+	 * Returns the maximum lifetime of a connection.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public long getMaxLifetime() {
+		return maxLifetime;
+	}
+	
+	/**
+	 * Sets the maximum lifetime of a connection. Older connections are
+	 * closed on borrow or release and replaced by a new one.
+	 * 
+	 * @param maxLifetime the time in milliseconds
+	 */
+	public void setMaxLifetime(long maxLifetime) {
+		this.maxLifetime = maxLifetime;
+	}
+	
+	/**
+	 * Returns the idle time after which a connection is validated on borrow.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public long getValidationInterval() {
+		return validationInterval;
+	}
+	
+	/**
+	 * Sets the idle time after which a connection is validated on borrow.
+	 * Connections used more recently are only checked for an open socket.
+	 * 
+	 * @param validationInterval the time in milliseconds
+	 */
+	public void setValidationInterval(long validationInterval) {
+		this.validationInterval = validationInterval;
+	}
+	
+	/**
+	 * Sets the socket timeout of all current and future connections.
+	 * 
+	 * @param timeout the timeout in milliseconds
+	 * @throws SocketException if there is an error in the
+	 * underlying protocol, such as a TCP error
+	 */
+	public void setTimeout(int timeout) throws SocketException {
+		
+		this.timeout = timeout;
+		for (SLNPConnection c : getConnections()) c.setSoTimeout(timeout);
+	}
+	
+	/**
+	 * Returns all connections of the pool, idle and in use.
+	 * 
+	 * @return the connections
+	 */
+	public Set<SLNPConnection> getConnections() {
+		return Collections.unmodifiableSet(pool.keySet());
+	}
+	
+	/**
+	 * Opens a connection, if the pool has no idle connection. A closed
+	 * pool is opened again.
+	 * 
+	 * @throws LMSException if the connection could't opened
+	 */
+	public void open() throws LMSException {
+		
+		closed = false;
+		if (idle.isEmpty()) release(acquire());
+	}
+	
+	/**
+	 * Checks if the pool is closed.
+	 * 
+	 * @return true if the pool is closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+	
+	/**
+	 * Closes all connections. Idle connections are removed from the pool,
+	 * connections in use are removed on release. Afterwards acquire()
+	 * fails until the pool is opened again.
+	 * 
+	 * @throws LMSException if a connection could't closed
+	 */
+	public void close() throws LMSException {
+		
+		closed = true;
+		
+		LMSException ex = null;
+		PooledConnection pc;
+		
+		while ((pc = idle.pollFirst()) != null) {
+			try { destroy(pc); }
+			catch (LMSException e) { ex = e; }
+		}
+		
+		// closed connections in use are destroyed on release
+		for (SLNPConnection c : pool.keySet()) {
+			try { c.close(); }
+			catch (LMSException e) { ex = e; }
+		}
+		if (ex != null) throw ex;
+	}
+	
+	/**
+	 * Returns a connection from the pool. The returned connection is
+	 * exclusively reserved until it's returned by release() or
+	 * invalidate(). If all connections are in use, the call waits
+	 * up to the maximum wait time.
+	 * 
+	 * @return an open connection
+	 * @throws SLNPException if the pool is closed or no connection was
+	 * released in time
+	 * @throws LMSException if a new connection could't opened
+	 */
+	public SLNPConnection acquire() throws LMSException {
+		
+		if (closed) throw new SLNPException("connection pool closed");
+		
+		long start = System.nanoTime();
+		
+		try {
+			if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+				timeouts.incrementAndGet();
+				throw new SLNPException("all connections busy");
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SLNPException("interrupted while waiting for connection", e);
+		}
+		waitTime.addAndGet(System.nanoTime() - start);
+		
+		try {
+			PooledConnection pc;
+			
+			// reuse the most recently used valid connection
+			while ((pc = idle.pollFirst()) != null) {
+				
+				if (validate(pc)) break;
+				
+				try { destroy(pc); }
+				catch (LMSException e) {}
+			}
+			
+			// open a new connection if no idle connection is left
+			if (pc == null) pc = create();
+			
+			// pool closed while waiting or connecting
+			if (closed) {
+				try { destroy(pc); }
+				catch (LMSException e) {}
+				throw new SLNPException("connection pool closed");
+			}
+			
+			pc.inUse.set(true);
+			active.incrementAndGet();
+			borrowed.incrementAndGet();
+			
+			return pc.con;
+		}
+		catch (LMSException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Returns a connection to the pool. The connection is closed if it
+	 * exceeds the lifetime or the pool size.
+	 * 
+	 * @param con the connection to release
+	 */
+	public void release(SLNPConnection con) {
+		
+		PooledConnection pc = pool.get(con);
+		
+		// skip unknown or already released connections
+		if (pc == null || !pc.inUse.compareAndSet(true, false)) return;
+		
+		long now = System.currentTimeMillis();
+		pc.lastUsed = now;
+		
+		if (closed || !con.isConnected() || now - pc.created > maxLifetime || pool.size() > maxSize) {
+			try { destroy(pc); }
+			catch (LMSException e) {}
+		}
+		else idle.offerFirst(pc);
+		
+		active.decrementAndGet();
+		permits.release();
+		
+		// evict idle connections from time to time
+		if (now - lastEviction > Math.min(maxIdleTime, 60000)) evict();
+	}
+	
+	/**
+	 * Removes a connection from the pool and closes it. Used for
+	 * connections with a failed transfer.
+	 * 
+	 * @param con the connection to invalidate
+	 */
+	public void invalidate(SLNPConnection con) {
+		
+		PooledConnection pc = pool.get(con);
+		
+		// skip unknown or already released connections
+		if (pc == null || !pc.inUse.compareAndSet(true, false)) return;
+		
+		try { destroy(pc); }
+		catch (LMSException e) {}
+		
+		active.decrementAndGet();
+		permits.release();
+	}
+	
+	/**
+	 * Closes all idle connections, which exceed the maximum idle time
+	 * or lifetime. The least recently used connections are checked first.
+	 */
+	public void evict() {
+		
+		long now = System.currentTimeMillis();
+		lastEviction = now;
+		
+		Iterator<PooledConnection> it = idle.descendingIterator();
+		
+		while (it.hasNext()) {
+			
+			PooledConnection pc = it.next();
+			
+			if (now - pc.lastUsed <= maxIdleTime && now - pc.created <= maxLifetime) continue;
+			
+			// skip connection borrowed in the meantime
+			if (!idle.removeFirstOccurrence(pc)) continue;
+			
+			try { destroy(pc); }
+			catch (LMSException e) {}
+		}
+	}
+	
+	/**
+	 * Returns the number of connections in use.
+	 * 
+	 * @return the number of connections in use
+	 */
+	public int getActiveCount() {
+		return active.get();
+	}
+	
+	/**
+	 * Returns the number of idle connections.
+	 * 
+	 * @return the number of idle connections
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+	
+	/**
+	 * Returns the number of connections, idle and in use.
+	 * 
+	 * @return the number of connections
+	 */
+	public int getSize() {
+		return pool.size();
+	}
+	
+	/**
+	 * Returns the estimated number of callers waiting for a connection.
+	 * 
+	 * @return the number of waiting callers
+	 */
+	public int getWaitingCount() {
+		return permits.getQueueLength();
+	}
+	
+	/**
+	 * Returns the number of borrowed connections since the pool was created.
+	 * 
+	 * @return the number of borrowed connections
+	 */
+	public long getBorrowCount() {
+		return borrowed.get();
+	}
+	
+	/**
+	 * Returns the number of opened connections since the pool was created.
+	 * 
+	 * @return the number of opened connections
+	 */
+	public long getCreatedCount() {
+		return created.get();
+	}
+	
+	/**
+	 * Returns the number of closed connections since the pool was created.
+	 * 
+	 * @return the number of closed connections
+	 */
+	public long getDestroyedCount() {
+		return destroyed.get();
+	}
+	
+	/**
+	 * Returns the number of callers, which got no connection in time.
+	 * 
+	 * @return the number of timeouts
+	 */
+	public long getTimeoutCount() {
+		return timeouts.get();
+	}
+	
+	/**
+	 * Returns the average time callers waited for a connection.
+	 * 
+	 * @return the average wait time in milliseconds
+	 */
+	public double getAverageWaitTime() {
+		
+		long count = borrowed.get() + timeouts.get();
+		return (count == 0) ? 0 : waitTime.get() / 1e6 / count;
+	}
+	
+	@Override
+	public String toString() {
+		return "SLNPConnectionPool [size=" + getSize() + ", active=" + getActiveCount()
+				+ ", idle=" + getIdleCount() + ", waiting=" + getWaitingCount() + "]";
+	}
+	
+	/**
+	 * Opens a new connection and adds it to the pool.
+	 * 
+	 * @return the new connection
+	 * @throws LMSException if the connection could't opened
+	 */
+	private PooledConnection create() throws LMSException {
+		
+		SLNPConnection con = new SLNPConnection(refCon);
+		
+		try { if (timeout >= 0) con.setSoTimeout(timeout); }
+		catch (SocketException e) {
+			throw new LMSException("could not open connection", e);
+		}
+		
+		con.open();
+		
+		PooledConnection pc = new PooledConnection(con);
+		pool.put(con, pc);
+		created.incrementAndGet();
+		
+		return pc;
+	}
+	
+	/**
+	 * Removes a connection from the pool and closes it.
+	 * 
+	 * @param pc the connection to close
+	 * @throws LMSException if the connection could't closed
+	 */
+	private void destroy(PooledConnection pc) throws LMSException {
+		
+		if (pool.remove(pc.con) == null) return;
+		destroyed.incrementAndGet();
+		pc.con.close();
+	}
+	
+	/**
+	 * Checks if an idle connection can be reused. A connection idle for
+	 * longer than the validation interval is probed for a closed socket.
+	 * 
+	 * @param pc the connection to validate
+	 * @return true if the connection is valid
+	 */
+	private boolean validate(PooledConnection pc) {
+		
+		long now = System.currentTimeMillis();
+		
+		if (now - pc.created > maxLifetime || now - pc.lastUsed > maxIdleTime) return false;
+		if (now - pc.lastUsed > validationInterval) return pc.con.isValid();
+		
+		return pc.con.isConnected();
+	}
+	
+	/**
+	 * Connection of the pool with it's usage information.
+	 */
+	private static class PooledConnection {
+		
+		private final SLNPConnection con;
+		private final long created;
+		private final AtomicBoolean inUse;
+		private volatile long lastUsed;
+		
+		private PooledConnection(SLNPConnection con) {
+			this.con = con;
+			this.created = System.currentTimeMillis();
+			this.lastUsed = created;
+			this.inUse = new AtomicBoolean();
+		}
+	}
+	
+	/**
+	 * Fair semaphore, which permits can be reduced to shrink the pool.
+	 */
+	private static class PoolSemaphore extends Semaphore {
+		
+		private static final long serialVersionUID = 6218373916464211045L;
+		
+		private PoolSemaphore(int permits) {
+			super(permits, true);
+		}
+		
+		@Override
+		protected void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package de.thkoeln.bibl.api.lms.slnp.transfer;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -40,7 +41,7 @@ public class MultiDataResponse extends DataResponse {
 		this.idxName = idxName.trim();
 		
 		// initialize data storage map
-		dataSet = new HashMap<>();
+		dataSet = new LinkedHashMap<>();
 	}
 	
 	@Override
@@ -0,0 +1,116 @@
+package de.thkoeln.bibl.api.lms.slnp.transfer;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import de.thkoeln.bibl.api.lms.Connectable;
+
+/**
+ * Implements the pipelining of SLNP requests on a single connection.
+ * Up to window requests are sent back-to-back without waiting for the
+ * responses, the responses are received in the order of the requests.
+ * All responses are read by a shared reader, because a reader buffers
+ * data of the following responses.
+ * 
+ * The SLNP server must process the requests of a connection in order.
+ * If a response is incomplete or failed, the state of the connection is
+ * unknown and it shouldn't be reused.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <T> the type of responses the pipeline receives
+ */
+public class Pipeline<T extends Response<?>> {
+	
+	private final int window;
+	private final BufferedReader in;
+	private final Queue<T> pending;
+	
+	/**
+	 * Initialize a new Pipeline for the supplied connection.
+	 * 
+	 * @param con the connection to send the requests with
+	 * @param window the maximum number of requests without response
+	 */
+	public Pipeline(Connectable con, int window) {
+		
+		if (window < 1) throw new IllegalArgumentException("window must be positive");
+		
+		this.window = window;
+		this.in = new BufferedReader(new InputStreamReader(
+				con.getInputStream(), Charset.forName(con.getEncoding())));
+		this.pending = new ArrayDeque<>(window);
+	}
+	
+	/**
+	 * Returns the maximum number of requests without response.
+	 * 
+	 * @return the window size
+	 */
+	public int getWindow() {
+		return window;
+	}
+	
+	/**
+	 * Returns the number of requests waiting for their response.
+	 * 
+	 * @return the number of pending requests
+	 */
+	public int getPending() {
+		return pending.size();
+	}
+	
+	/**
+	 * Checks if the window is full, so a response must be received
+	 * before the next request can be sent.
+	 * 
+	 * @return true if the window is full
+	 */
+	public boolean isFull() {
+		return pending.size() >= window;
+	}
+	
+	/**
+	 * Sends a request without waiting for the response. The supplied
+	 * response is received in order of the requests by receive().
+	 * 
+	 * @param req the request to send
+	 * @param res the response to receive the answer with
+	 * @throws IllegalStateException if the window is full
+	 */
+	public void send(Request req, T res) throws IllegalStateException {
+		
+		if (isFull()) throw new IllegalStateException("pipeline window is full");
+		
+		req.send();
+		pending.add(res);
+	}
+	
+	/**
+	 * Receives the response of the oldest pending request.
+	 * 
+	 * @return the received response
+	 * @throws IOException if an I/O error occurs or the response is incomplete
+	 * @throws ReflectiveOperationException if the received data has an invalid
+	 * format for the defined response message type
+	 * @throws IllegalStateException if no request is pending
+	 */
+	public T receive() throws IOException, ReflectiveOperationException {
+		
+		T res = pending.poll();
+		if (res == null) throw new IllegalStateException("no pending request");
+		
+		res.receive(in);
+		
+		// connection closed before the end of the response
+		if (res.getSize() < 1 || !res.lastMessage().isEndMarker())
+			throw new EOFException("incomplete response");
+		
+		return res;
+	}
+}
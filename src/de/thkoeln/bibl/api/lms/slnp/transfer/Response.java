@@ -53,7 +53,22 @@ public class Response<T extends ResponseMessage> extends Transfer<T> {
 	public void receive(Connectable con) throws IOException, 
 			ReflectiveOperationException {
 		
-		BufferedReader in = getReader();
+		receive(getReader());
+	}
+	
+	/**
+	 * Receives the response from the supplied reader. A reader shared
+	 * by several responses is needed, if the responses of pipelined
+	 * requests are received, because the reader buffers ahead.
+	 * 
+	 * @param in the reader to read the response from
+	 * @throws IOException if an I/O error occurs
+	 * @throws ReflectiveOperationException if the received data has an invalid
+	 * format for the defined response message type
+	 */
+	public void receive(BufferedReader in) throws IOException, 
+			ReflectiveOperationException {
+		
 		String line;
 		
 		// read data from server
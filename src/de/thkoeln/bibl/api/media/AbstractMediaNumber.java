@@ -1,22 +1,23 @@
 package de.thkoeln.bibl.api.media;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import de.thkoeln.bibl.api.io.XMLSerializer;
+
 /**
  * Class implements the structure of a media number. Specializing
  * sub-classes must describe the concrete media number with an REGEX
@@ -55,8 +56,15 @@ public abstract class AbstractMediaNumber implements Serializable,
 	@XmlElement (name = "number", required = true)
 	private String number;
 	
-	private Matcher matcher;
-	private Map<String, GroupType> groupDef;
+	// shared group layout and the matched group values
+	private transient MediaNumberLayout layout;
+	private transient String[] groups;
+	
+	// comparison key of the integer groups
+	private transient long[] keyNumbers;
+	
+	// integer groups which aren't numeric, null if all are numeric
+	private transient boolean[] keyText;
 	
 	/**
 	 * Default constructor for serialization.
@@ -77,14 +85,8 @@ public abstract class AbstractMediaNumber implements Serializable,
 			Map<String, GroupType> groupDef) throws MediaFormatException {
 		
 		this.number = number.trim();
-		this.groupDef = groupDef;
-
-		// match against number
-		matcher = pattern.matcher(number);
 		
-		// throw exception if number don't match
-		if (!matcher.matches()) 
-			throw new MediaFormatException("invalid media number format");
+		match(number, pattern, groupDef, null);
 	}
 	
 	/**
@@ -108,6 +110,7 @@ public abstract class AbstractMediaNumber implements Serializable,
 	/**
 	 * Initialize a new AbstractMediaNumber. The media number pattern
 	 * and group definition is defined in the specializing sub class.
+	 * The number is split by the parser of the sub class, if available.
 	 * 
 	 * @param number the media number
 	 * @throws MediaFormatException if the supplied media number could't
@@ -117,14 +120,8 @@ public abstract class AbstractMediaNumber implements Serializable,
 			throws MediaFormatException {
 		
 		this.number = number.trim();
-		this.groupDef = getGroupDefinition();
-		
-		// match against number
-		matcher = getPattern().matcher(number);
 		
-		// throw exception if number don't match
-		if (!matcher.matches()) 
-			throw new MediaFormatException("invalid media number format");
+		match(number, getPattern(), getGroupDefinition(), getParser());
 	}
 	
 	/**
@@ -147,8 +144,7 @@ public abstract class AbstractMediaNumber implements Serializable,
 	public String getGroup(String regexGroup) 
 			throws IllegalArgumentException {
 		
-		String val = matcher.group(regexGroup);
-		return (val == null) ? val : val.trim();
+		return groups[layout.indexOf(regexGroup) - 1];
 	}
 	
 	/**
@@ -162,8 +158,11 @@ public abstract class AbstractMediaNumber implements Serializable,
 	public String getGroup(int regexGroup) 
 			throws IndexOutOfBoundsException {
 		
-		String val = matcher.group(regexGroup);
-		return (val == null) ? val : val.trim();
+		if (regexGroup < 0 || regexGroup > groups.length)
+			throw new IndexOutOfBoundsException("No group " + regexGroup);
+		
+		// group 0 is the whole number
+		return (regexGroup == 0) ? number : groups[regexGroup - 1];
 	}
 	
 	/**
@@ -216,22 +215,76 @@ public abstract class AbstractMediaNumber implements Serializable,
 	 */
 	public abstract Pattern getPattern();
 	
+	/**
+	 * Returns the parser splitting the media number into the groups of
+	 * the default pattern without regular expression matching. The
+	 * default implementation returns null, so the pattern is used.
+	 * Sub-classes should return a shared parser instance.
+	 * 
+	 * @return the parser or null if the pattern is used
+	 */
+	protected MediaNumberParser getParser() {
+		return null;
+	}
+	
 	@Override
 	public String toString() {
 		return number;
 	}
 
 	/**
-	 * Compare the media number by the group definition order.
+	 * Compare the media number by the group definition order. Media numbers
+	 * with the same layout are compared by their precompiled keys, other
+	 * media numbers by the groups named in the group definition of this
+	 * media number.
 	 * 
 	 * @param o the media number to compare with
 	 */
 	@Override
 	public int compareTo(AbstractMediaNumber o) {
 		
-		for (Entry<String, GroupType> def : groupDef.entrySet()) {
-			String group = def.getKey();
-			int cmp = compare(getGroup(group), o.getGroup(group), def.getValue());
+		if (layout != o.layout) return compareGroups(o);
+		
+		GroupType[] types = layout.types;
+		int[] idx = layout.indices;
+		
+		for (int i = 0; i < types.length; i++) {
+			
+			int cmp;
+			
+			// compare as integer or alpha numerical
+			if (types[i] == GroupType.INTEGER && !isText(i) && !o.isText(i)) 
+				cmp = Long.compare(keyNumbers[i], o.keyNumbers[i]);
+			else cmp = compare(groups[idx[i] - 1], o.groups[idx[i] - 1]);
+			
+			if (cmp != 0) return cmp;
+		}
+		
+		return 0;
+	}
+	
+	/**
+	 * Checks if the integer group of the key isn't numeric, so it's
+	 * compared as string.
+	 * 
+	 * @param key the index in the comparison key
+	 * @return true if the group isn't numeric
+	 */
+	private boolean isText(int key) {
+		return keyText != null && keyText[key];
+	}
+	
+	/**
+	 * Compare the media number by the matched groups.
+	 * 
+	 * @param o the media number to compare with
+	 * @return positive, negative or zero value
+	 */
+	private int compareGroups(AbstractMediaNumber o) {
+		
+		for (int i = 0; i < layout.names.length; i++) {
+			String group = layout.names[i];
+			int cmp = compare(getGroup(group), o.getGroup(group), layout.types[i]);
 			
 			if (cmp != 0) return cmp;
 		}
@@ -239,6 +292,101 @@ public abstract class AbstractMediaNumber implements Serializable,
 		return 0;
 	}
 	
+	/**
+	 * Compares two string values, undefined values are compared as
+	 * empty string.
+	 * 
+	 * @param val1 first value
+	 * @param val2 second value
+	 * @return positive, negative or zero value
+	 */
+	private static int compare(String val1, String val2) {
+		
+		if (val1 == val2) return 0;
+		if (val1 == null) return val2.isEmpty() ? 0 : -1;
+		if (val2 == null) return val1.isEmpty() ? 0 : 1;
+		
+		return val1.compareTo(val2);
+	}
+	
+	/**
+	 * Splits the media number by the parser or matches it against the
+	 * pattern and extracts the trimmed group values and the comparison key
+	 * of the integer groups. Integer groups which aren't numeric, e.g. an
+	 * empty optional group, are marked and compared as string. The matcher is discarded afterwards, the group
+	 * layout is shared with all media numbers of the same pattern and
+	 * group definition.
+	 * 
+	 * @param number the media number
+	 * @param pattern the pattern defining the media number structure
+	 * @param groupDef the group definition describing the pattern groups
+	 * @param parser the parser to split the number or null to use
+	 * the pattern
+	 * @throws MediaFormatException if the supplied media number could't
+	 * parsed with the supplied pattern
+	 */
+	private void match(String number, Pattern pattern, Map<String, GroupType> groupDef,
+			MediaNumberParser parser) throws MediaFormatException {
+		
+		layout = MediaNumberLayout.get(pattern, groupDef);
+		groups = new String[layout.groupCount];
+		
+		if (parser != null && parser.getGroupCount() != groups.length)
+			throw new IllegalStateException("parser groups don't match pattern: " + parser);
+		
+		// fall back to the pattern if the parser doesn't accept the number
+		if (parser == null || !parser.parse(number, groups)) {
+			
+			Matcher matcher = pattern.matcher(number);
+			
+			// throw exception if number don't match
+			if (!matcher.matches()) 
+				throw new MediaFormatException("invalid media number format");
+			
+			for (int i = 0; i < groups.length; i++) groups[i] = matcher.group(i + 1);
+		}
+		
+		for (int i = 0; i < groups.length; i++)
+			if (groups[i] != null) groups[i] = groups[i].trim();
+		
+		if (!layout.hasNumbers) return;
+		
+		// parse integer groups once
+		keyNumbers = new long[layout.types.length];
+		
+		for (int i = 0; i < keyNumbers.length; i++) {
+			
+			if (layout.types[i] != GroupType.INTEGER) continue;
+			String val = groups[layout.indices[i] - 1];
+			
+			try { keyNumbers[i] = Long.parseLong((val != null) ? val : GroupType.INTEGER.getDefValue()); }
+			catch (NumberFormatException e) {
+				if (keyText == null) keyText = new boolean[keyNumbers.length];
+				keyText[i] = true;
+			}
+		}
+	}
+	
+	/**
+	 * Restores the group values after deserialization by matching the
+	 * number against the default pattern and group definition.
+	 * 
+	 * @param in the stream to read the object from
+	 * @throws IOException if the object could't read or the number
+	 * could't parsed
+	 * @throws ClassNotFoundException if a class of the object could't found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, 
+			ClassNotFoundException {
+		
+		in.defaultReadObject();
+		
+		try { match(number, getPattern(), getGroupDefinition(), getParser()); }
+		catch (MediaFormatException e) {
+			throw new IOException("could't restore media number", e);
+		}
+	}
+	
 	/**
 	 * Serialize the object to an output stream as XML representation.
 	 * 
@@ -246,11 +394,7 @@ public abstract class AbstractMediaNumber implements Serializable,
 	 * @throws JAXBException if the object could't serialized
 	 */
 	public void serializeTo(OutputStream out) throws JAXBException {
-			
-		Marshaller marshaller = JAXBContext.newInstance(this.getClass())
-				.createMarshaller();
-		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-		marshaller.marshal(this, out);
+		XMLSerializer.serialize(this, out);
 	}
 	
 	/**
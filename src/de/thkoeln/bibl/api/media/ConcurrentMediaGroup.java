@@ -0,0 +1,216 @@
+package de.thkoeln.bibl.api.media;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Class implements a thread safe MediaGroup, which can be filled by
+ * several threads in parallel, e.g. by threads looking up media in the
+ * LMS. The media map and tree are guarded by a read/write lock, so
+ * changes are atomic across both and queries can run concurrently.
+ * 
+ * Adding a collection takes the lock once and merges the media into the
+ * tree, so threads should collect their media and add them in bulk.
+ * The values of the group are returned as snapshot, which can be
+ * iterated while the group is changed.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <T> the type of media the group holds
+ */
+public class ConcurrentMediaGroup<T extends LibraryMedia<? extends AbstractMediaNumber>>
+		extends MediaGroup<T> {
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Lock read = lock.readLock();
+	private final Lock write = lock.writeLock();
+	
+	/**
+	 * Initialize a ConcurrentMediaGroup with a specialized comparator.
+	 * 
+	 * @param name alias for the group
+	 * @param comp the comparator implements the ordering for the group
+	 */
+	public ConcurrentMediaGroup(String name, Comparator<T> comp) {
+		super(name, comp);
+	}
+	
+	/**
+	 * Initialize a ConcurrentMediaGroup with a specialized comparator.
+	 * 
+	 * @param comp the comparator implements the ordering for the group
+	 */
+	public ConcurrentMediaGroup(Comparator<T> comp) {
+		super(comp);
+	}
+	
+	/**
+	 * Initialize a ConcurrentMediaGroup with a default sort order (natural).
+	 * 
+	 * @param name alias for the group
+	 */
+	public ConcurrentMediaGroup(String name) {
+		super(name);
+	}
+	
+	/**
+	 * Initialize a ConcurrentMediaGroup with a default sort order (natural).
+	 */
+	public ConcurrentMediaGroup() {
+		super();
+	}
+	
+	/**
+	 * Initialize a ConcurrentMediaGroup with an initial list and with a
+	 * specialized comparator.
+	 * 
+	 * @param name alias for the group
+	 * @param media the initial media list
+	 * @param comp the comparator implements the ordering for the group or
+	 * null for the natural order
+	 */
+	public ConcurrentMediaGroup(String name, Collection<T> media, Comparator<T> comp) {
+		super(name, comp);
+		add(media);
+	}
+	
+	@Override
+	public boolean add(Collection<T> media) {
+		
+		write.lock();
+		try { return super.add(media); }
+		finally { write.unlock(); }
+	}
+	
+	@Override
+	public boolean add(T media) {
+		
+		write.lock();
+		try { return super.add(media); }
+		finally { write.unlock(); }
+	}
+	
+	@Override
+	public void remove(String mediaNr) {
+		
+		write.lock();
+		try { super.remove(mediaNr); }
+		finally { write.unlock(); }
+	}
+	
+	@Override
+	public void remove(Collection<T> media) {
+		
+		write.lock();
+		try { super.remove(media); }
+		finally { write.unlock(); }
+	}
+	
+	@Override
+	public T get(String mediaNr) {
+		
+		read.lock();
+		try { return super.get(mediaNr); }
+		finally { read.unlock(); }
+	}
+	
+	@Override
+	public T get(int index) {
+		
+		read.lock();
+		try { return super.get(index); }
+		finally { read.unlock(); }
+	}
+	
+	@Override
+	public int count(T from, T to) {
+		
+		read.lock();
+		try { return super.count(from, to); }
+		finally { read.unlock(); }
+	}
+	
+	@Override
+	public T getFirst() {
+		
+		read.lock();
+		try { return super.getFirst(); }
+		finally { read.unlock(); }
+	}
+	
+	@Override
+	public T getLast() {
+		
+		read.lock();
+		try { return super.getLast(); }
+		finally { read.unlock(); }
+	}
+	
+	/**
+	 * Returns a snapshot of all media in the group. Later changes of the
+	 * group are not reflected by the snapshot.
+	 * 
+	 * @return media as ordered, unmodifiable Set
+	 */
+	@Override
+	public Set<T> getValues() {
+		
+		read.lock();
+		try { return Collections.unmodifiableSet(new LinkedHashSet<>(super.getValues())); }
+		finally { read.unlock(); }
+	}
+	
+	@Override
+	public int indexOf(String mediaNr) {
+		
+		read.lock();
+		try { return super.indexOf(mediaNr); }
+		finally { read.unlock(); }
+	}
+	
+	@Override
+	public int getDistance(String mediaNr1, String mediaNr2) {
+		
+		read.lock();
+		try { return super.getDistance(mediaNr1, mediaNr2); }
+		finally { read.unlock(); }
+	}
+	
+	@Override
+	public boolean contains(String mediaNr) {
+		
+		read.lock();
+		try { return super.contains(mediaNr); }
+		finally { read.unlock(); }
+	}
+	
+	@Override
+	public void clear() {
+		
+		write.lock();
+		try { super.clear(); }
+		finally { write.unlock(); }
+	}
+	
+	@Override
+	public int size() {
+		
+		read.lock();
+		try { return super.size(); }
+		finally { read.unlock(); }
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		
+		read.lock();
+		try { return super.isEmpty(); }
+		finally { read.unlock(); }
+	}
+}
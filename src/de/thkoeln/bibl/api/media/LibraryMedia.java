@@ -3,9 +3,7 @@ package de.thkoeln.bibl.api.media;
 import java.io.OutputStream;
 import java.io.Serializable;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAnyElement;
@@ -13,6 +11,8 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import de.thkoeln.bibl.api.io.XMLSerializer;
+
 /**
  * Class implements the structure of a library media and extends the media
  * number by other media related data.
@@ -25,7 +25,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 @XmlRootElement(name="library-media")
 @XmlAccessorType(XmlAccessType.NONE)
 public class LibraryMedia<T extends AbstractMediaNumber> implements Serializable, 
-		Comparable<LibraryMedia<T>> {
+		Comparable<LibraryMedia<T>>, Cloneable {
 	
 	private static final long serialVersionUID = -7536849076528974385L;
 	
@@ -158,12 +158,26 @@ public class LibraryMedia<T extends AbstractMediaNumber> implements Serializable
 	 */
 	public void serializeTo(OutputStream out) throws JAXBException {
 		
-		Marshaller marshaller = JAXBContext.newInstance(this.getClass(), 
-				mediaNumber.getClass()).createMarshaller();
-		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-		marshaller.marshal(this, out);
+		XMLSerializer.serialize(this, out, this.getClass(), mediaNumber.getClass());
 	}
 
+	/**
+	 * Returns a copy of the media, so modifications of the copy don't
+	 * affect this media. The media number is shared, because it can't
+	 * be modified. Sub-classes holding mutable objects must override
+	 * this method.
+	 * 
+	 * @return the copy of the media
+	 */
+	@SuppressWarnings("unchecked")
+	public LibraryMedia<T> copy() {
+		
+		try { return (LibraryMedia<T>)super.clone(); }
+		catch (CloneNotSupportedException e) {
+			throw new IllegalStateException("could not copy media", e);
+		}
+	}
+	
 	/**
 	 * Compare the media by it's media number.
 	 * 
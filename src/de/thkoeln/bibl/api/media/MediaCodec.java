@@ -0,0 +1,207 @@
+package de.thkoeln.bibl.api.media;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Date;
+
+import de.thkoeln.bibl.api.io.BinaryCodec;
+import de.thkoeln.bibl.api.media.SisisMedia.BorrowState;
+import de.thkoeln.bibl.api.media.SisisMedia.LoanAbility;
+
+/**
+ * Class implements the binary serializing of library media. The codec is
+ * an compact alternative to the XML serializing, e.g. to store or transfer
+ * a large number of media.
+ * 
+ * The record body contains the fields of the media in a fixed layout:
+ * 
+ * LibraryMedia:	media number, author, titel, ISBN, year
+ * SisisMedia:		signature, location, type, attachment, parts, damaged,
+ * 					created, borrow state, loanability
+ * 
+ * The media number is stored as String and parsed again on decoding, so
+ * the codec is bound to a specific media number class. The borrow state
+ * and loanability are stored by their constant name, so the order of the
+ * enum constants can change. Version 1 records stored them by ordinal and
+ * are decoded with the constant order of version 1.
+ * 
+ * Instances of this class are thread safe.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <N> the type of media number the decoded media use
+ */
+public class MediaCodec<N extends AbstractMediaNumber>
+		extends BinaryCodec<LibraryMedia<N>> {
+	
+	/** The current format version */
+	public static final int VERSION = 2;
+	
+	private static final int TYPE_LIBRARY = 1;
+	private static final int TYPE_SISIS = 2;
+	
+	// constant order of the version 1 records
+	private static final BorrowState[] V1_BORROW_STATES = {
+			BorrowState.NOT_BORROWED, BorrowState.BORROWED, BorrowState.RESERVED,
+			BorrowState.ORDERED, BorrowState.RETURNSHIPMENT, BorrowState.UNKNOWN };
+	private static final LoanAbility[] V1_LOAN_ABILITIES = {
+			LoanAbility.LOANABLE, LoanAbility.LOANABLE_WEEKEND, LoanAbility.LOANABLE_ROOM,
+			LoanAbility.LOANABLE_SPECIAL_ROOM, LoanAbility.NOT_LOANABLE, LoanAbility.UNKNOWN };
+	
+	private final Constructor<N> mediaNrBuilder;
+	
+	/**
+	 * Initialize a new MediaCodec for the supplied media number class.
+	 * 
+	 * @param mediaNrClass the media number class for which the codec builds
+	 * the media
+	 * @throws ReflectiveOperationException if the supplied media number class
+	 * dosn't support the required initialization function
+	 */
+	public MediaCodec(Class<N> mediaNrClass) throws ReflectiveOperationException {
+		
+		super(VERSION);
+		
+		// get media number constructor
+		mediaNrBuilder = mediaNrClass.getDeclaredConstructor(String.class);
+	}
+	
+	@Override
+	protected int getType(LibraryMedia<N> media) {
+		return (media instanceof SisisMedia) ? TYPE_SISIS : TYPE_LIBRARY;
+	}
+	
+	@Override
+	protected void encodeBody(LibraryMedia<N> media, DataOutput out)
+			throws IOException {
+		
+		// library media fields
+		out.writeUTF(media.getMediaID());
+		writeString(out, media.getAuthor());
+		writeString(out, media.getTitel());
+		writeString(out, media.getISBN());
+		out.writeInt(media.getYear());
+		
+		if (!(media instanceof SisisMedia)) return;
+		
+		// SISIS media fields
+		SisisMedia<N> sisis = (SisisMedia<N>)media;
+		Date created = sisis.getCreated();
+		
+		writeString(out, sisis.getSignature());
+		out.writeInt(sisis.getLocation());
+		out.writeInt(sisis.getType());
+		out.writeBoolean(sisis.isAttachment());
+		out.writeInt(sisis.getParts());
+		out.writeBoolean(sisis.isDamaged());
+		out.writeLong((created != null) ? created.getTime() : -1);
+		writeString(out, (sisis.getBorrowState() != null) ? sisis.getBorrowState().name() : null);
+		writeString(out, (sisis.getLoanAbility() != null) ? sisis.getLoanAbility().name() : null);
+	}
+	
+	@Override
+	protected LibraryMedia<N> decodeBody(int type, int version, DataInput in)
+			throws IOException {
+		
+		if (type != TYPE_LIBRARY && type != TYPE_SISIS)
+			throw new IOException("unsupported record type: " + type);
+		
+		N mnr = createMediaNumber(in.readUTF());
+		
+		LibraryMedia<N> media = (type == TYPE_SISIS) ? new SisisMedia<>(mnr)
+				: new LibraryMedia<>(mnr);
+		
+		// library media fields
+		media.setAuthor(readString(in));
+		media.setTitle(readString(in));
+		media.setISBN(readString(in));
+		media.setYear(in.readInt());
+		
+		if (type == TYPE_LIBRARY) return media;
+		
+		// SISIS media fields
+		SisisMedia<N> sisis = (SisisMedia<N>)media;
+		
+		sisis.setSignature(readString(in));
+		sisis.setLocation(in.readInt());
+		sisis.setType(in.readInt());
+		sisis.setAttachment(in.readBoolean());
+		sisis.setParts(in.readInt());
+		sisis.setDamaged(in.readBoolean());
+		
+		long created = in.readLong();
+		if (created != -1) sisis.setCreated(new Date(created));
+		
+		if (version < 2) {
+			sisis.setBorrowState(readOrdinal(in, V1_BORROW_STATES));
+			sisis.setLoanAbility(readOrdinal(in, V1_LOAN_ABILITIES));
+			return sisis;
+		}
+		
+		sisis.setBorrowState(readConstant(in, BorrowState.class));
+		sisis.setLoanAbility(readConstant(in, LoanAbility.class));
+		
+		return sisis;
+	}
+	
+	/**
+	 * Reads an enum constant written by it's name.
+	 * 
+	 * @param in the data input to read from
+	 * @param type the enum type
+	 * @return the constant or null
+	 * @throws IOException if an I/O error occurs or the name is unknown
+	 */
+	private static <E extends Enum<E>> E readConstant(DataInput in, Class<E> type)
+			throws IOException {
+		
+		String name = readString(in);
+		if (name == null) return null;
+		
+		try { return Enum.valueOf(type, name); }
+		catch (IllegalArgumentException e) {
+			throw new IOException("unknown " + type.getSimpleName() + ": " + name);
+		}
+	}
+	
+	/**
+	 * Reads an enum constant of a version 1 record written by it's ordinal.
+	 * 
+	 * @param in the data input to read from
+	 * @param constants the constants in the order of version 1
+	 * @return the constant or null
+	 * @throws IOException if an I/O error occurs or the ordinal is unknown
+	 */
+	private static <E> E readOrdinal(DataInput in, E[] constants) throws IOException {
+		
+		int ordinal = in.readByte();
+		if (ordinal == -1) return null;
+		
+		if (ordinal < 0 || ordinal >= constants.length)
+			throw new IOException("unknown constant: " + ordinal);
+		
+		return constants[ordinal];
+	}
+	
+	/**
+	 * Creates a new media number object from the supplied media ID.
+	 * 
+	 * @param id the media ID
+	 * @return the created media number
+	 * @throws IOException if the media number creation failed
+	 */
+	private N createMediaNumber(String id) throws IOException {
+		
+		try { return mediaNrBuilder.newInstance(id); }
+		catch (InvocationTargetException e) {
+			throw new IOException("could not create media number object",
+					e.getTargetException());
+		}
+		catch (ReflectiveOperationException e) {
+			throw new IOException("could not create media number object", e);
+		}
+	}
+}
@@ -4,9 +4,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * 
@@ -18,7 +18,7 @@ public class MediaGroup<T extends LibraryMedia<? extends AbstractMediaNumber>> {
 
 	private String name;
 	private Map<String, T> mediaMap;
-	private TreeSet<T> mediaTree;
+	private OrderStatisticTree<T> mediaTree;
 	
 	/**
 	 * Initialize a MediaGroup with a specialized comparator.
@@ -34,7 +34,7 @@ public class MediaGroup<T extends LibraryMedia<? extends AbstractMediaNumber>> {
 		
 		// initialize media map/tree
 		mediaMap = new HashMap<>();
-		mediaTree = new TreeSet<>(comp);
+		mediaTree = new OrderStatisticTree<>(comp);
 	}
 	
 	/**
@@ -123,11 +123,11 @@ public class MediaGroup<T extends LibraryMedia<? extends AbstractMediaNumber>> {
 	 */
 	public boolean add(Collection<T> media) {
 		
-		boolean skip = false;
-		// add all media objects
-		for (T elm : media) if (!add(elm)) skip = true;
+		// merge media objects into the tree
+		List<T> added = mediaTree.merge(media);
+		for (T elm : added) mediaMap.put(elm.getMediaNumber().getNumber(), elm);
 		
-		return !skip;
+		return added.size() == media.size();
 	}
 	
 	/**
@@ -247,6 +247,29 @@ public class MediaGroup<T extends LibraryMedia<? extends AbstractMediaNumber>> {
 		return mediaTree.last();
 	}
 	
+	/**
+	 * Returns the media at the specified index in the group.
+	 * 
+	 * @param index the index of the media
+	 * @return the media
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public T get(int index) {
+		return mediaTree.get(index);
+	}
+	
+	/**
+	 * Returns the number of media between two media objects, including
+	 * both bounds. The bounds don't need to be part of the group.
+	 * 
+	 * @param from the lower bound
+	 * @param to the upper bound
+	 * @return the number of media in the range
+	 */
+	public int count(T from, T to) {
+		return mediaTree.count(from, to);
+	}
+	
 	/**
 	 * Return the alias of the group or null if no alias is defined.
 	 * @return group alias or null
@@ -256,13 +279,14 @@ public class MediaGroup<T extends LibraryMedia<? extends AbstractMediaNumber>> {
 	}
 
 	/**
-	 * Returns all media in the group.
+	 * Returns all media in the group. The Set is a read-only view of the
+	 * group, media must be removed by remove(String).
 	 * 
-	 * @return media as SortedSet
+	 * @return media as ordered, unmodifiable Set
 	 */
 	public Set<T> getValues() {
 		if (size() < 1) return Collections.emptySet();
-		return mediaTree;
+		return Collections.unmodifiableSet(mediaTree);
 	}
 	
 	/**
@@ -278,8 +302,8 @@ public class MediaGroup<T extends LibraryMedia<? extends AbstractMediaNumber>> {
 		// check if the element exist
 		if (!contains(mediaNr)) return -1;
 		
-		// calculate position in tree-map
-		return mediaTree.headSet(get(mediaNr)).size();
+		// calculate position by subtree sizes
+		return mediaTree.indexOf(get(mediaNr));
 	}
 	
 	/**
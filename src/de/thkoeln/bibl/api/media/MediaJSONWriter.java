@@ -0,0 +1,77 @@
+package de.thkoeln.bibl.api.media;
+
+import java.io.OutputStream;
+import java.io.Writer;
+
+import de.thkoeln.bibl.api.io.JSONLinesWriter;
+import de.thkoeln.bibl.api.io.JSONWriter;
+
+/**
+ * Class implements the export of library media as JSON lines. The members
+ * are written depending on the media class:
+ * 
+ * LibraryMedia:	id, author, titel, isbn, year
+ * SisisMedia:		signature, location, type, attachment, parts, damaged,
+ * 					created (epoch millis), borrow-state, loan-ability
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <N> the type of media number the media use
+ */
+public class MediaJSONWriter<N extends AbstractMediaNumber>
+		extends JSONLinesWriter<LibraryMedia<N>> {
+	
+	/**
+	 * Initialize a new MediaJSONWriter with the supplied writer.
+	 * 
+	 * @param out the writer to write the JSON lines to
+	 */
+	public MediaJSONWriter(Writer out) {
+		super(out);
+	}
+	
+	/**
+	 * Initialize a new MediaJSONWriter writing UTF-8 encoded JSON lines to
+	 * the supplied output stream.
+	 * 
+	 * @param out the output stream to write the JSON lines to
+	 */
+	public MediaJSONWriter(OutputStream out) {
+		super(out);
+	}
+	
+	@Override
+	protected void writeMembers(JSONWriter json, LibraryMedia<N> media) {
+		
+		// library media fields
+		json.name("id").value(media.getMediaID());
+		json.name("author").value(media.getAuthor());
+		json.name("titel").value(media.getTitel());
+		json.name("isbn").value(media.getISBN());
+		json.name("year").value(media.getYear());
+		
+		if (!(media instanceof SisisMedia)) return;
+		
+		// SISIS media fields
+		SisisMedia<N> sisis = (SisisMedia<N>)media;
+		
+		json.name("signature").value(sisis.getSignature());
+		json.name("location").value(sisis.getLocation());
+		json.name("type").value(sisis.getType());
+		json.name("attachment").value(sisis.isAttachment());
+		json.name("parts").value(sisis.getParts());
+		json.name("damaged").value(sisis.isDamaged());
+		
+		json.name("created");
+		if (sisis.getCreated() == null) json.nullValue();
+		else json.value(sisis.getCreated().getTime());
+		
+		json.name("borrow-state");
+		if (sisis.getBorrowState() == null) json.nullValue();
+		else json.value(sisis.getBorrowState().name());
+		
+		json.name("loan-ability");
+		if (sisis.getLoanAbility() == null) json.nullValue();
+		else json.value(sisis.getLoanAbility().name());
+	}
+}
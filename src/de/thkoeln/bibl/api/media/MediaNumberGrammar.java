@@ -0,0 +1,264 @@
+package de.thkoeln.bibl.api.media;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class implements a MediaNumberParser compiled from a simple grammar,
+ * covering the common formats of signatures and media numbers. The
+ * grammar is a sequence of space separated elements:
+ * 
+ * <pre>
+ * A+       one or more letters, captured as group
+ * 9+       one or more digits, captured as group
+ * X+       one or more letters or digits, captured as group
+ * s*       optional whitespace, not captured
+ * "text"   the literal text, not captured
+ * [ ... ]  an optional sequence of elements
+ * </pre>
+ * 
+ * Groups are numbered in the order of their appearance, like the groups
+ * of a regular expression. E.g. the grammar <code>A+ s* 9+ [ "." X+ ]</code>
+ * corresponds to the pattern <code>(\p{L}+)\s*(\d+)(?:\.([\p{L}\d]+))?</code>.
+ * 
+ * The input is scanned once from left to right. Each element consumes as
+ * many characters as possible and an optional sequence is skipped if it
+ * doesn't match, there is no further backtracking. The whole number must
+ * be consumed. Instances of this class are immutable and thread safe.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public final class MediaNumberGrammar implements MediaNumberParser {
+	
+	private static final int LETTERS = 1;
+	private static final int DIGITS = 2;
+	private static final int ALNUM = 3;
+	private static final int SPACE = 4;
+	private static final int LITERAL = 5;
+	private static final int OPTIONAL = 6;
+	
+	private String grammar;
+	private Element[] elements;
+	private int groupCount;
+	
+	/**
+	 * Initialize a new MediaNumberGrammar.
+	 * 
+	 * @param grammar the grammar String
+	 * @param elements the compiled elements
+	 * @param groupCount the number of groups
+	 */
+	private MediaNumberGrammar(String grammar, Element[] elements, int groupCount) {
+		this.grammar = grammar;
+		this.elements = elements;
+		this.groupCount = groupCount;
+	}
+	
+	/**
+	 * Compiles the supplied grammar.
+	 * 
+	 * @param grammar the grammar String
+	 * @return the compiled grammar
+	 * @throws IllegalArgumentException if the grammar is invalid
+	 */
+	public static MediaNumberGrammar compile(String grammar) throws IllegalArgumentException {
+		
+		List<String> tokens = tokenize(grammar);
+		int[] pos = {0};
+		int[] groups = {0};
+		
+		Element[] elements = compile(tokens, pos, groups);
+		
+		if (pos[0] < tokens.size())
+			throw new IllegalArgumentException("unexpected token: " + tokens.get(pos[0]));
+		
+		return new MediaNumberGrammar(grammar, elements, groups[0]);
+	}
+	
+	@Override
+	public int getGroupCount() {
+		return groupCount;
+	}
+	
+	@Override
+	public boolean parse(String number, String[] groups) {
+		
+		for (int i = 0; i < groups.length; i++) groups[i] = null;
+		return match(elements, number, 0, groups) == number.length();
+	}
+	
+	@Override
+	public String toString() {
+		return grammar;
+	}
+	
+	/**
+	 * Matches a sequence of elements.
+	 * 
+	 * @param seq the elements to match
+	 * @param str the input String
+	 * @param pos the position to start matching
+	 * @param groups the array to store the group values to
+	 * @return the position after the sequence or -1 if it doesn't match
+	 */
+	private static int match(Element[] seq, String str, int pos, String[] groups) {
+		
+		for (Element elm : seq) {
+			
+			int start = pos;
+			
+			switch (elm.type) {
+			case LITERAL:
+				if (!str.startsWith(elm.text, pos)) return -1;
+				pos += elm.text.length();
+				break;
+			case SPACE:
+				while (pos < str.length() && Character.isWhitespace(str.charAt(pos))) pos++;
+				break;
+			case OPTIONAL:
+				int end = match(elm.seq, str, pos, groups);
+				
+				// skip sequence and reset it's groups
+				if (end < 0) {
+					for (int i = elm.firstGroup; i < elm.lastGroup; i++) groups[i] = null;
+				}
+				else pos = end;
+				break;
+			default:
+				while (pos < str.length() && accepts(elm.type, str.charAt(pos))) pos++;
+				if (pos == start) return -1;
+				groups[elm.firstGroup] = str.substring(start, pos);
+			}
+		}
+		return pos;
+	}
+	
+	/**
+	 * Checks if a character is part of a character run.
+	 * 
+	 * @param type the type of the run
+	 * @param c the character
+	 * @return true if the character belongs to the run
+	 */
+	private static boolean accepts(int type, char c) {
+		
+		switch (type) {
+		case LETTERS:
+			return Character.isLetter(c);
+		case DIGITS:
+			return c >= '0' && c <= '9';
+		default:
+			return Character.isLetterOrDigit(c);
+		}
+	}
+	
+	/**
+	 * Compiles a sequence of tokens up to the end or a closing bracket.
+	 * 
+	 * @param tokens the tokens
+	 * @param pos the position of the next token
+	 * @param groups the number of groups compiled so far
+	 * @return the compiled elements
+	 */
+	private static Element[] compile(List<String> tokens, int[] pos, int[] groups) {
+		
+		List<Element> seq = new ArrayList<>();
+		
+		while (pos[0] < tokens.size()) {
+			
+			String token = tokens.get(pos[0]);
+			
+			if (token.equals("]")) break;
+			pos[0]++;
+			
+			switch (token) {
+			case "A+":
+				seq.add(new Element(LETTERS, groups[0]++));
+				break;
+			case "9+":
+				seq.add(new Element(DIGITS, groups[0]++));
+				break;
+			case "X+":
+				seq.add(new Element(ALNUM, groups[0]++));
+				break;
+			case "s*":
+				seq.add(new Element(SPACE, -1));
+				break;
+			case "[":
+				Element opt = new Element(OPTIONAL, groups[0]);
+				opt.seq = compile(tokens, pos, groups);
+				opt.lastGroup = groups[0];
+				
+				if (pos[0] >= tokens.size()) throw new IllegalArgumentException("missing ]");
+				pos[0]++;
+				seq.add(opt);
+				break;
+			default:
+				if (token.length() < 3 || !token.startsWith("\"") || !token.endsWith("\""))
+					throw new IllegalArgumentException("invalid token: " + token);
+				
+				Element lit = new Element(LITERAL, -1);
+				lit.text = token.substring(1, token.length() - 1);
+				seq.add(lit);
+			}
+		}
+		return seq.toArray(new Element[seq.size()]);
+	}
+	
+	/**
+	 * Splits the grammar into tokens. Quoted literals can contain spaces.
+	 * 
+	 * @param grammar the grammar String
+	 * @return the tokens
+	 */
+	private static List<String> tokenize(String grammar) {
+		
+		List<String> tokens = new ArrayList<>();
+		int i = 0;
+		
+		while (i < grammar.length()) {
+			
+			char c = grammar.charAt(i);
+			
+			if (Character.isWhitespace(c)) {
+				i++;
+				continue;
+			}
+			
+			int end;
+			
+			// quoted literal or element up to the next whitespace
+			if (c == '"') {
+				end = grammar.indexOf('"', i + 1);
+				if (end < 0) throw new IllegalArgumentException("unterminated literal");
+				end++;
+			}
+			else {
+				end = i;
+				while (end < grammar.length() && !Character.isWhitespace(grammar.charAt(end))) end++;
+			}
+			tokens.add(grammar.substring(i, end));
+			i = end;
+		}
+		return tokens;
+	}
+	
+	/**
+	 * Compiled element of the grammar.
+	 */
+	private static class Element {
+		
+		private int type;
+		private int firstGroup;
+		private int lastGroup;
+		private String text;
+		private Element[] seq;
+		
+		private Element(int type, int group) {
+			this.type = type;
+			this.firstGroup = group;
+			this.lastGroup = group + 1;
+		}
+	}
+}
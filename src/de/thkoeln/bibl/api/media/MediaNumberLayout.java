@@ -0,0 +1,217 @@
+package de.thkoeln.bibl.api.media;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import de.thkoeln.bibl.api.media.AbstractMediaNumber.GroupType;
+
+/**
+ * Class describes the group layout of a media number pattern, the index
+ * of each named group and the compared groups of the group definition.
+ * The layout is shared by all media numbers with the same pattern and
+ * group definition, so a media number only holds the values of it's
+ * groups.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+final class MediaNumberLayout {
+	
+	private static final ConcurrentMap<String, MediaNumberLayout> layouts =
+			new ConcurrentHashMap<>();
+	
+	/** number of capturing groups of the pattern */
+	final int groupCount;
+	
+	/** index of the named groups */
+	final Map<String, Integer> index;
+	
+	/** names, indices and types of the compared groups */
+	final String[] names;
+	final int[] indices;
+	final GroupType[] types;
+	
+	/** true if one of the compared groups is an integer group */
+	final boolean hasNumbers;
+	
+	/**
+	 * Initialize a new MediaNumberLayout.
+	 * 
+	 * @param pattern the media number pattern
+	 * @param groupDef the group definition
+	 */
+	private MediaNumberLayout(Pattern pattern, Map<String, GroupType> groupDef) {
+		
+		groupCount = pattern.matcher("").groupCount();
+		index = new HashMap<>();
+		
+		// verify the parsed groups match the pattern
+		if (parseNamedGroups(pattern.pattern(), pattern.flags(), index) != groupCount)
+			throw new IllegalArgumentException("unsupported pattern: " + pattern);
+		
+		names = new String[groupDef.size()];
+		indices = new int[names.length];
+		types = new GroupType[names.length];
+		
+		boolean numbers = false;
+		int i = 0;
+		
+		for (Map.Entry<String, GroupType> def : groupDef.entrySet()) {
+			
+			Integer idx = index.get(def.getKey());
+			if (idx == null) throw new IllegalArgumentException("No group with name <"
+					+ def.getKey() + ">");
+			
+			names[i] = def.getKey();
+			indices[i] = idx;
+			types[i] = def.getValue();
+			numbers |= types[i] == GroupType.INTEGER;
+			i++;
+		}
+		hasNumbers = numbers;
+	}
+	
+	/**
+	 * Returns the shared layout of the supplied pattern and group definition.
+	 * 
+	 * @param pattern the media number pattern
+	 * @param groupDef the group definition
+	 * @return the layout
+	 */
+	static MediaNumberLayout get(Pattern pattern, Map<String, GroupType> groupDef) {
+		
+		String key = pattern.flags() + ":" + groupDef + ":" + pattern.pattern();
+		MediaNumberLayout layout = layouts.get(key);
+		
+		if (layout == null) {
+			layout = new MediaNumberLayout(pattern, groupDef);
+			MediaNumberLayout re = layouts.putIfAbsent(key, layout);
+			if (re != null) layout = re;
+		}
+		return layout;
+	}
+	
+	/**
+	 * Returns the index of a named group.
+	 * 
+	 * @param name the name of the group
+	 * @return the index of the group
+	 * @throws IllegalArgumentException if there is no group with the name
+	 */
+	int indexOf(String name) throws IllegalArgumentException {
+		
+		Integer idx = index.get(name);
+		if (idx == null) throw new IllegalArgumentException("No group with name <" + name + ">");
+		return idx;
+	}
+	
+	/**
+	 * Parses the index of the named groups of a pattern. Escaped
+	 * characters, quoted sections, character classes and, in comments
+	 * mode, comments are skipped, only capturing groups are counted.
+	 * Comments mode is enabled by the COMMENTS flag or an embedded
+	 * flag expression.
+	 * 
+	 * @param regex the pattern String
+	 * @param flags the flags of the pattern
+	 * @param map the map to put the index of the named groups to
+	 * @return the number of capturing groups
+	 */
+	private static int parseNamedGroups(String regex, int flags, Map<String, Integer> map) {
+		
+		// literal pattern has no groups
+		if ((flags & Pattern.LITERAL) != 0) return 0;
+		
+		int count = 0;
+		int classDepth = 0;
+		boolean comments = (flags & Pattern.COMMENTS) != 0;
+		
+		// comments mode of the enclosing groups
+		Deque<Boolean> scopes = new ArrayDeque<>();
+		
+		for (int i = 0; i < regex.length(); i++) {
+			
+			char c = regex.charAt(i);
+			
+			if (c == '\\') {
+				// skip quoted section or escaped character
+				if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+					int end = regex.indexOf("\\E", i + 2);
+					i = (end < 0) ? regex.length() : end + 1;
+				}
+				else i++;
+			}
+			else if (c == '#' && comments) {
+				// skip comment until end of line
+				while (i + 1 < regex.length() && regex.charAt(i + 1) != '\n'
+						&& regex.charAt(i + 1) != '\r') i++;
+			}
+			else if (c == '[') {
+				classDepth++;
+				
+				// leading bracket of a class is a literal
+				if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') i++;
+				if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') i++;
+			}
+			else if (c == ']' && classDepth > 0) classDepth--;
+			else if (c == ')' && classDepth == 0) {
+				if (!scopes.isEmpty()) comments = scopes.pop();
+			}
+			else if (c == '(' && classDepth == 0) {
+				
+				scopes.push(comments);
+				
+				// unnamed capturing group
+				if (i + 1 >= regex.length() || regex.charAt(i + 1) != '?') {
+					count++;
+					continue;
+				}
+				
+				// named capturing group, no look-behind
+				if (i + 3 < regex.length() && regex.charAt(i + 2) == '<'
+						&& regex.charAt(i + 3) != '=' && regex.charAt(i + 3) != '!') {
+					
+					int end = regex.indexOf('>', i + 3);
+					if (end < 0) break;
+					
+					map.put(regex.substring(i + 3, end), ++count);
+					i = end;
+				}
+				// embedded flags (?idmsux-idmsux) or (?idmsux-idmsux:X)
+				else {
+					int end = i + 2;
+					boolean on = true;
+					Boolean x = null;
+					
+					for (; end < regex.length(); end++) {
+						char f = regex.charAt(end);
+						if (f == '-') on = false;
+						else if (f == 'x') x = on;
+						else if ("idmsuU".indexOf(f) < 0) break;
+					}
+					if (end >= regex.length() || x == null) continue;
+					
+					char f = regex.charAt(end);
+					
+					// flags apply to the enclosing group
+					if (f == ')') {
+						scopes.pop();
+						comments = x;
+						i = end;
+					}
+					// flags apply to the group
+					else if (f == ':') {
+						comments = x;
+						i = end;
+					}
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,39 @@
+package de.thkoeln.bibl.api.media;
+
+/**
+ * Interface for parsers splitting a media number into the groups of the
+ * media number pattern without regular expression matching. A media
+ * number class can supply a parser by AbstractMediaNumber.getParser(),
+ * which is used instead of the pattern to extract the group values.
+ * 
+ * The parser must produce the same groups as the pattern of the media
+ * number, group i of the pattern is stored at index i - 1. Numbers the
+ * parser doesn't accept are matched against the pattern, so a parser
+ * can support the common number formats only.
+ * 
+ * @see MediaNumberGrammar
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public interface MediaNumberParser {
+	
+	/**
+	 * Returns the number of groups the parser produces.
+	 * 
+	 * @return the number of groups
+	 */
+	public int getGroupCount();
+	
+	/**
+	 * Parses the supplied media number into it's groups. Groups without
+	 * a value are set to null.
+	 * 
+	 * @param number the media number to parse
+	 * @param groups the array to store the group values to, the length is
+	 * the number of groups
+	 * @return true if the number was parsed, false if the number must be
+	 * matched against the pattern
+	 */
+	public boolean parse(String number, String[] groups);
+}
@@ -0,0 +1,515 @@
+package de.thkoeln.bibl.api.media;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Class implements a sorted set as balanced binary tree (AVL), which
+ * holds the size of each subtree. The subtree sizes allow to get the
+ * index of an element, the element at an index and the number of elements
+ * in a range in O(log n), in addition to adding, removing and finding
+ * elements.
+ * 
+ * The elements are ordered by the supplied comparator or by their natural
+ * order. Like the TreeSet, the set doesn't contain elements which are
+ * equal by the order. Instances of this class are not thread safe.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <E> the type of elements the set holds
+ */
+class OrderStatisticTree<E> extends AbstractSet<E> {
+	
+	private Comparator<? super E> comp;
+	private Node<E> root;
+	private int modCount;
+	
+	/**
+	 * Initialize a new OrderStatisticTree with the supplied comparator.
+	 * 
+	 * @param comp the comparator or null for the natural order
+	 */
+	OrderStatisticTree(Comparator<? super E> comp) {
+		this.comp = comp;
+	}
+	
+	@Override
+	public int size() {
+		return size(root);
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return root == null;
+	}
+	
+	@Override
+	public void clear() {
+		root = null;
+		modCount++;
+	}
+	
+	@Override
+	public boolean add(E elm) {
+		
+		int size = size();
+		root = insert(root, elm);
+		
+		if (size() == size) return false;
+		
+		modCount++;
+		return true;
+	}
+	
+	/**
+	 * Adds all supplied elements, which are not already part of the set.
+	 * The elements are merged with the elements of the set and the tree
+	 * is rebuilt balanced in O(n + m log m), instead of rebalancing after
+	 * every single insert. Few elements compared to the size of the set
+	 * are inserted one by one. Of several equal elements only the first
+	 * is added.
+	 * 
+	 * @param elms the elements to add
+	 * @return the added elements
+	 */
+	@SuppressWarnings("unchecked")
+	public List<E> merge(Collection<? extends E> elms) {
+		
+		List<E> add = new ArrayList<>(elms);
+		List<E> added = new ArrayList<>(add.size());
+		
+		// insert few elements one by one
+		if (add.size() < size() / 8) {
+			for (E elm : add) if (add(elm)) added.add(elm);
+			return added;
+		}
+		
+		// stable sort, the first of equal elements is kept
+		Collections.sort(add, new Comparator<E>() {
+			
+			@Override
+			public int compare(E e1, E e2) {
+				return OrderStatisticTree.this.compare(e1, e2);
+			}
+		});
+		
+		Object[] merged = new Object[size() + add.size()];
+		Iterator<E> it = iterator();
+		E cur = it.hasNext() ? it.next() : null;
+		int n = 0;
+		
+		for (E elm : add) {
+			
+			// copy lower elements of the set
+			while (cur != null && compare(cur, elm) < 0) {
+				merged[n++] = cur;
+				cur = it.hasNext() ? it.next() : null;
+			}
+			
+			// skip elements equal to the set or the last added element
+			if (cur != null && compare(cur, elm) == 0) continue;
+			if (!added.isEmpty() && compare(added.get(added.size() - 1), elm) == 0) continue;
+			
+			merged[n++] = elm;
+			added.add(elm);
+		}
+		while (cur != null) {
+			merged[n++] = cur;
+			cur = it.hasNext() ? it.next() : null;
+		}
+		
+		if (added.isEmpty()) return added;
+		
+		root = build((E[])merged, 0, n);
+		modCount++;
+		return added;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object elm) {
+		
+		if (elm == null || !contains(elm)) return false;
+		
+		root = delete(root, (E)elm);
+		modCount++;
+		return true;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean contains(Object elm) {
+		
+		if (elm == null) return false;
+		
+		Node<E> node = root;
+		
+		while (node != null) {
+			int cmp = compare((E)elm, node.value);
+			if (cmp == 0) return true;
+			node = (cmp < 0) ? node.left : node.right;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the first (lowest) element.
+	 * 
+	 * @return the first element
+	 * @throws NoSuchElementException if the set is empty
+	 */
+	public E first() {
+		
+		if (root == null) throw new NoSuchElementException();
+		
+		Node<E> node = root;
+		while (node.left != null) node = node.left;
+		return node.value;
+	}
+	
+	/**
+	 * Returns the last (highest) element.
+	 * 
+	 * @return the last element
+	 * @throws NoSuchElementException if the set is empty
+	 */
+	public E last() {
+		
+		if (root == null) throw new NoSuchElementException();
+		
+		Node<E> node = root;
+		while (node.right != null) node = node.right;
+		return node.value;
+	}
+	
+	/**
+	 * Returns the number of elements lower than the supplied element. The
+	 * element doesn't need to be part of the set.
+	 * 
+	 * @param elm the element to get the rank of
+	 * @return the number of lower elements
+	 */
+	public int rank(E elm) {
+		
+		Node<E> node = root;
+		int rank = 0;
+		
+		while (node != null) {
+			int cmp = compare(elm, node.value);
+			
+			if (cmp <= 0) node = node.left;
+			else {
+				rank += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return rank;
+	}
+	
+	/**
+	 * Returns the index of the supplied element.
+	 * 
+	 * @param elm the element to get the index of
+	 * @return the index or a negative value if the element is not part
+	 * of the set
+	 */
+	public int indexOf(E elm) {
+		
+		Node<E> node = root;
+		int rank = 0;
+		
+		while (node != null) {
+			int cmp = compare(elm, node.value);
+			
+			if (cmp == 0) return rank + size(node.left);
+			if (cmp < 0) node = node.left;
+			else {
+				rank += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the element at the supplied index.
+	 * 
+	 * @param index the index of the element
+	 * @return the element
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public E get(int index) {
+		
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+		
+		Node<E> node = root;
+		
+		while (true) {
+			int left = size(node.left);
+			
+			if (index == left) return node.value;
+			if (index < left) node = node.left;
+			else {
+				index -= left + 1;
+				node = node.right;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of elements between the supplied elements,
+	 * including both bounds. The bounds don't need to be part of the set.
+	 * 
+	 * @param from the lower bound
+	 * @param to the upper bound
+	 * @return the number of elements in the range
+	 */
+	public int count(E from, E to) {
+		
+		if (compare(from, to) > 0) return 0;
+		
+		int hi = rank(to) + (contains(to) ? 1 : 0);
+		return hi - rank(from);
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return new TreeIterator();
+	}
+	
+	/**
+	 * Compares two elements by the comparator or by their natural order.
+	 * 
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @return positive, negative or zero value
+	 */
+	@SuppressWarnings("unchecked")
+	private int compare(E e1, E e2) {
+		return (comp != null) ? comp.compare(e1, e2) : ((Comparable<? super E>)e1).compareTo(e2);
+	}
+	
+	/**
+	 * Inserts an element into a subtree.
+	 * 
+	 * @param node the root of the subtree
+	 * @param elm the element to insert
+	 * @return the new root of the subtree
+	 */
+	private Node<E> insert(Node<E> node, E elm) {
+		
+		if (node == null) return new Node<>(elm);
+		
+		int cmp = compare(elm, node.value);
+		
+		if (cmp == 0) return node;
+		if (cmp < 0) node.left = insert(node.left, elm);
+		else node.right = insert(node.right, elm);
+		
+		return balance(node);
+	}
+	
+	/**
+	 * Deletes an element from a subtree.
+	 * 
+	 * @param node the root of the subtree
+	 * @param elm the element to delete
+	 * @return the new root of the subtree
+	 */
+	private Node<E> delete(Node<E> node, E elm) {
+		
+		if (node == null) return null;
+		
+		int cmp = compare(elm, node.value);
+		
+		if (cmp < 0) node.left = delete(node.left, elm);
+		else if (cmp > 0) node.right = delete(node.right, elm);
+		else {
+			if (node.left == null) return node.right;
+			if (node.right == null) return node.left;
+			
+			// replace by the lowest element of the right subtree
+			Node<E> min = node.right;
+			while (min.left != null) min = min.left;
+			
+			node.value = min.value;
+			node.right = delete(node.right, min.value);
+		}
+		return balance(node);
+	}
+	
+	/**
+	 * Builds a balanced subtree of sorted elements.
+	 * 
+	 * @param elms the sorted elements
+	 * @param from the index of the first element, inclusive
+	 * @param to the index of the last element, exclusive
+	 * @return the root of the subtree
+	 */
+	private Node<E> build(E[] elms, int from, int to) {
+		
+		if (from >= to) return null;
+		
+		int mid = (from + to) >>> 1;
+		Node<E> node = new Node<>(elms[mid]);
+		
+		node.left = build(elms, from, mid);
+		node.right = build(elms, mid + 1, to);
+		update(node);
+		
+		return node;
+	}
+	
+	/**
+	 * Restores the balance of a subtree and updates the height and size.
+	 * 
+	 * @param node the root of the subtree
+	 * @return the new root of the subtree
+	 */
+	private Node<E> balance(Node<E> node) {
+		
+		update(node);
+		int diff = height(node.left) - height(node.right);
+		
+		if (diff > 1) {
+			if (height(node.left.left) < height(node.left.right))
+				node.left = rotateLeft(node.left);
+			return rotateRight(node);
+		}
+		if (diff < -1) {
+			if (height(node.right.right) < height(node.right.left))
+				node.right = rotateRight(node.right);
+			return rotateLeft(node);
+		}
+		return node;
+	}
+	
+	/**
+	 * Rotates a subtree to the left.
+	 * 
+	 * @param node the root of the subtree
+	 * @return the new root of the subtree
+	 */
+	private Node<E> rotateLeft(Node<E> node) {
+		
+		Node<E> r = node.right;
+		node.right = r.left;
+		r.left = node;
+		
+		update(node);
+		update(r);
+		return r;
+	}
+	
+	/**
+	 * Rotates a subtree to the right.
+	 * 
+	 * @param node the root of the subtree
+	 * @return the new root of the subtree
+	 */
+	private Node<E> rotateRight(Node<E> node) {
+		
+		Node<E> l = node.left;
+		node.left = l.right;
+		l.right = node;
+		
+		update(node);
+		update(l);
+		return l;
+	}
+	
+	/**
+	 * Updates the height and size of a node from it's children.
+	 * 
+	 * @param node the node to update
+	 */
+	private static void update(Node<?> node) {
+		node.height = Math.max(height(node.left), height(node.right)) + 1;
+		node.size = size(node.left) + size(node.right) + 1;
+	}
+	
+	/**
+	 * Returns the height of a subtree.
+	 * 
+	 * @param node the root of the subtree or null
+	 * @return the height of the subtree
+	 */
+	private static int height(Node<?> node) {
+		return (node != null) ? node.height : 0;
+	}
+	
+	/**
+	 * Returns the number of elements of a subtree.
+	 * 
+	 * @param node the root of the subtree or null
+	 * @return the size of the subtree
+	 */
+	private static int size(Node<?> node) {
+		return (node != null) ? node.size : 0;
+	}
+	
+	/**
+	 * Node of the tree holding the height and size of it's subtree.
+	 */
+	private static class Node<E> {
+		
+		private E value;
+		private Node<E> left;
+		private Node<E> right;
+		private int height = 1;
+		private int size = 1;
+		
+		private Node(E value) {
+			this.value = value;
+		}
+	}
+	
+	/**
+	 * In-order iterator over the elements. The iterator doesn't
+	 * support removing elements.
+	 */
+	private class TreeIterator implements Iterator<E> {
+		
+		private Deque<Node<E>> stack = new ArrayDeque<>();
+		private int expected = modCount;
+		
+		private TreeIterator() {
+			push(root);
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+		
+		@Override
+		public E next() {
+			
+			if (expected != modCount) throw new ConcurrentModificationException();
+			if (stack.isEmpty()) throw new NoSuchElementException();
+			
+			Node<E> node = stack.pop();
+			push(node.right);
+			return node.value;
+		}
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+		private void push(Node<E> node) {
+			for (; node != null; node = node.left) stack.push(node);
+		}
+	}
+}
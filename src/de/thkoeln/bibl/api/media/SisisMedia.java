@@ -385,6 +385,20 @@ public class SisisMedia<T extends AbstractMediaNumber> extends LibraryMedia<T> {
 		return loanAbility;
 	}
 
+	/**
+	 * Returns a copy of the media with it's own creation time.
+	 * 
+	 * @return the copy of the media
+	 */
+	@Override
+	public SisisMedia<T> copy() {
+
+		SisisMedia<T> re = (SisisMedia<T>)super.copy();
+		if (created != null) re.created = (Date)created.clone();
+		
+		return re;
+	}
+
 	/**
 	 * Checks if the media is borrowed.
 	 * 
@@ -0,0 +1,93 @@
+package de.thkoeln.bibl.api.rfid.reader;
+
+import de.thkoeln.bibl.api.rfid.tag.ISO15693Tag;
+import de.thkoeln.bibl.api.rfid.tag.TagException;
+
+/**
+ * Class holds the result of an AFI update for a specific tag.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <T> the type of the updated tag
+ */
+public class AFIResult<T extends ISO15693Tag> {
+	
+	private T tag;
+	private int afi;
+	private int attempts;
+	private TagException error;
+	
+	/**
+	 * Initialize a new AFIResult for the specified tag and AFI.
+	 * 
+	 * @param tag the tag to update
+	 * @param afi the AFI to write
+	 */
+	public AFIResult(T tag, int afi) {
+		this.tag = tag;
+		this.afi = afi;
+	}
+	
+	/**
+	 * Returns the updated tag.
+	 * 
+	 * @return the tag
+	 */
+	public T getTag() {
+		return tag;
+	}
+	
+	/**
+	 * Returns the AFI that should be written.
+	 * 
+	 * @return the AFI value
+	 */
+	public int getAFI() {
+		return afi;
+	}
+	
+	/**
+	 * Returns the number of write attempts.
+	 * 
+	 * @return the number of attempts
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+	
+	/**
+	 * Returns the error of the last failed attempt or null
+	 * if the AFI was written successfully.
+	 * 
+	 * @return the error or null
+	 */
+	public TagException getError() {
+		return error;
+	}
+	
+	/**
+	 * Checks if the AFI was written successfully.
+	 * 
+	 * @return true if the AFI was written
+	 */
+	public boolean isSuccessful() {
+		return attempts > 0 && error == null;
+	}
+	
+	/**
+	 * Registers a new write attempt with its error.
+	 * 
+	 * @param error the error of the attempt or null if the attempt
+	 * was successful
+	 */
+	void attempt(TagException error) {
+		attempts++;
+		this.error = error;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%s: %02X %s (%d)", tag.getUID(), afi,
+				isSuccessful() ? "ok" : error, attempts);
+	}
+}
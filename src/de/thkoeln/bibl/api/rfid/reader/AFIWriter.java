@@ -0,0 +1,201 @@
+package de.thkoeln.bibl.api.rfid.reader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.feig.FedmException;
+import de.feig.FedmIscReader;
+import de.feig.FedmIscReaderConst;
+import de.feig.TagHandler.FedmIscTagHandler;
+import de.thkoeln.bibl.api.rfid.tag.ISO15693Tag;
+import de.thkoeln.bibl.api.rfid.tag.TagException;
+
+/**
+ * Class implements a batch update of the AFI for a group of tags, e.g.
+ * a group of tags reported by the FrameReader. The AFI is used to store the
+ * borrow state of a media, so the AFIWriter can be used to toggle the
+ * security of a whole stack of media at once.
+ * 
+ * A single inventory provides the tag handlers for all tags in the field,
+ * afterwards every tag is updated with an addressed command. Failed tags
+ * are retried in further rounds with an increasing backoff and a new
+ * inventory, successfully updated tags are not touched again.
+ * 
+ * The reader must support host mode commands while the AFIWriter is used,
+ * so a reader in buffered reader mode should be stopped before.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class AFIWriter {
+	
+	private FedmIscReader reader;
+	private int retries;
+	private int backoff;
+	
+	/**
+	 * Initialize a new AFIWriter.
+	 * 
+	 * @param con the connection used to communicate with the reader
+	 * @param retries the number of retries for each failed tag
+	 * @param backoff the initial backoff in milliseconds before the first
+	 * retry, the backoff is doubled for each further retry
+	 * @throws FedmException if the ISO table could't initialized
+	 */
+	public AFIWriter(ReaderConnection con, int retries, int backoff) 
+			throws FedmException {
+		
+		this.reader = con.reader;
+		this.retries = retries;
+		this.backoff = backoff;
+		
+		// set ISO table size if not initialized by a host reader
+		if (reader.getTableSize(FedmIscReaderConst.ISO_TABLE) < 1)
+			reader.setTableSize(FedmIscReaderConst.ISO_TABLE, 256);
+	}
+	
+	/**
+	 * Initialize a new AFIWriter with 3 retries and a initial
+	 * backoff of 10 milliseconds.
+	 * 
+	 * @param con the connection used to communicate with the reader
+	 * @throws FedmException if the ISO table could't initialized
+	 */
+	public AFIWriter(ReaderConnection con) throws FedmException {
+		
+		// default retries and backoff
+		this(con, 3, 10);
+	}
+	
+	/**
+	 * Writes the supplied AFI to all supplied tags. The returned list
+	 * contains a result for every tag in the order of the supplied tags.
+	 * If the inventory of a retry round fails, the error is recorded for
+	 * all pending tags and the results are returned without further
+	 * retries.
+	 * 
+	 * @param tags the tags to update
+	 * @param afi the AFI value to write
+	 * @return the results for all tags
+	 * @throws ReaderException if the first inventory failed
+	 * @param <T> the type of the tags to update
+	 */
+	public <T extends ISO15693Tag> List<AFIResult<T>> write(List<T> tags, int afi)
+			throws ReaderException {
+		
+		// verify valid AFI range
+		if (afi < 0x00 || afi > 0xFF)
+			throw new IllegalArgumentException("invalid AFI value: " + afi);
+		
+		List<AFIResult<T>> results = new ArrayList<>(tags.size());
+		for (T tag : tags) results.add(new AFIResult<>(tag, afi));
+		
+		List<AFIResult<T>> pending = results;
+		
+		for (int round = 0; round <= retries && !pending.isEmpty(); round++) {
+			
+			// wait with increasing backoff before retry
+			if (round > 0) {
+				try { Thread.sleep((long)backoff << (round - 1)); }
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			
+			Map<String, FedmIscTagHandler> handlers;
+			
+			// get handlers for all tags in the field
+			try { handlers = inventory(); }
+			catch (ReaderException e) {
+				if (round == 0) throw e;
+				
+				// keep the results of the previous rounds
+				TagException error = new TagException("could not inventory", e);
+				for (AFIResult<T> re : pending) re.attempt(error);
+				break;
+			}
+			
+			List<AFIResult<T>> failed = new ArrayList<>();
+			
+			// update all pending tags
+			for (AFIResult<T> re : pending) {
+				
+				T tag = re.getTag();
+				FedmIscTagHandler handler = handlers.get(tag.getUID());
+				
+				try {
+					if (handler == null) throw new TagException("tag not in field");
+					tag.writeAFI(handler, afi);
+					re.attempt(null);
+				}
+				catch (TagException e) {
+					re.attempt(e);
+					failed.add(re);
+				}
+			}
+			pending = failed;
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Returns the number of retries for each failed tag.
+	 * 
+	 * @return the number of retries
+	 */
+	public int getRetries() {
+		return retries;
+	}
+	
+	/**
+	 * Sets the number of retries for each failed tag.
+	 * 
+	 * @param retries the number of retries
+	 */
+	public void setRetries(int retries) {
+		this.retries = retries;
+	}
+	
+	/**
+	 * Returns the initial backoff before the first retry.
+	 * 
+	 * @return the backoff in milliseconds
+	 */
+	public int getBackoff() {
+		return backoff;
+	}
+	
+	/**
+	 * Sets the initial backoff before the first retry. The backoff
+	 * is doubled for each further retry.
+	 * 
+	 * @param backoff the backoff in milliseconds
+	 */
+	public void setBackoff(int backoff) {
+		this.backoff = backoff;
+	}
+	
+	/**
+	 * Runs an inventory and returns the tag handlers of all tags in the
+	 * field, indexed by the UID.
+	 * 
+	 * @return the tag handlers
+	 * @throws ReaderException if the inventory failed
+	 */
+	private Map<String, FedmIscTagHandler> inventory() throws ReaderException {
+		
+		Map<String, FedmIscTagHandler> map = null;
+		
+		try { map = reader.tagInventory(true, (byte)0, (byte)1); }
+		catch (Exception e) {
+			throw new ReaderException("could not inventory", e);
+		}
+		
+		if (map == null) return Collections.emptyMap();
+		return map;
+	}
+}
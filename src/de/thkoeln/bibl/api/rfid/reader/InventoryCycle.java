@@ -0,0 +1,113 @@
+package de.thkoeln.bibl.api.rfid.reader;
+
+/**
+ * Class describes the statistics of a single inventory cycle of an
+ * InventorySession. The cycles of a session form the discovery curve
+ * of the inventory.
+ * 
+ * @see InventorySession
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class InventoryCycle {
+	
+	private int nr;
+	private int antennas;
+	private int detected;
+	private int discovered;
+	private int total;
+	private long duration;
+	
+	/**
+	 * Initialize a new InventoryCycle.
+	 * 
+	 * @param nr the number of the cycle, starting with 1
+	 * @param antennas the antenna mask used for the cycle
+	 * @param detected the number of tags detected in the cycle
+	 * @param discovered the number of tags detected the first time
+	 * @param total the number of tags detected since the session started
+	 * @param duration the duration of the cycle in milliseconds
+	 */
+	public InventoryCycle(int nr, int antennas, int detected, int discovered,
+			int total, long duration) {
+		
+		this.nr = nr;
+		this.antennas = antennas;
+		this.detected = detected;
+		this.discovered = discovered;
+		this.total = total;
+		this.duration = duration;
+	}
+	
+	/**
+	 * Returns the number of the cycle, starting with 1.
+	 * 
+	 * @return the cycle number
+	 */
+	public int getNr() {
+		return nr;
+	}
+	
+	/**
+	 * Returns the antenna mask used for the cycle.
+	 * 
+	 * @return the antenna mask
+	 */
+	public int getAntennas() {
+		return antennas;
+	}
+	
+	/**
+	 * Returns the number of tags detected in the cycle.
+	 * 
+	 * @return the number of detected tags
+	 */
+	public int getDetected() {
+		return detected;
+	}
+	
+	/**
+	 * Returns the number of tags detected the first time in the cycle.
+	 * 
+	 * @return the number of new tags
+	 */
+	public int getDiscovered() {
+		return discovered;
+	}
+	
+	/**
+	 * Returns the number of tags detected since the session started,
+	 * including this cycle.
+	 * 
+	 * @return the total number of tags
+	 */
+	public int getTotal() {
+		return total;
+	}
+	
+	/**
+	 * Returns the duration of the cycle.
+	 * 
+	 * @return the duration in milliseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+	
+	/**
+	 * Returns the rate of new tags, the number of new tags in relation to
+	 * the total number of tags.
+	 * 
+	 * @return the rate of new tags between 0 and 1
+	 */
+	public double getDiscoveryRate() {
+		return (total > 0) ? (double)discovered / total : 0;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("cycle %d: %d detected, %d new, %d total, %d ms",
+				nr, detected, discovered, total, duration);
+	}
+}
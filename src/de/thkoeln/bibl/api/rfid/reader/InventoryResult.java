@@ -0,0 +1,109 @@
+package de.thkoeln.bibl.api.rfid.reader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import de.thkoeln.bibl.api.rfid.tag.BaseTag;
+
+/**
+ * Class holds the result of an InventorySession. The result contains
+ * the discovery curve of the session, the tags grouped by their
+ * signature in shelf order and the tags without a readable signature.
+ * 
+ * @see InventorySession
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <T> the type of tags the result holds
+ */
+public class InventoryResult<T extends BaseTag> {
+	
+	private List<InventoryCycle> cycles;
+	private SortedMap<String, List<T>> groups;
+	private List<T> unidentified;
+	private boolean converged;
+	
+	/**
+	 * Initialize a new InventoryResult.
+	 * 
+	 * @param cycles the statistics of all cycles
+	 * @param groups the tags grouped by signature in shelf order
+	 * @param unidentified the tags without signature
+	 * @param converged true if the discovery rate converged
+	 */
+	public InventoryResult(List<InventoryCycle> cycles, SortedMap<String, List<T>> groups,
+			List<T> unidentified, boolean converged) {
+		
+		this.cycles = Collections.unmodifiableList(cycles);
+		this.groups = Collections.unmodifiableSortedMap(groups);
+		this.unidentified = Collections.unmodifiableList(unidentified);
+		this.converged = converged;
+	}
+	
+	/**
+	 * Returns the statistics of all cycles, the discovery curve of
+	 * the session.
+	 * 
+	 * @return the cycles in execution order
+	 */
+	public List<InventoryCycle> getCycles() {
+		return cycles;
+	}
+	
+	/**
+	 * Returns the tags grouped by their signature. The groups are
+	 * ordered by the shelf order of the session.
+	 * 
+	 * @return the tags indexed by signature
+	 */
+	public SortedMap<String, List<T>> getGroups() {
+		return groups;
+	}
+	
+	/**
+	 * Returns all tags with a signature in shelf order.
+	 * 
+	 * @return a list of all tags with signature
+	 */
+	public List<T> getShelfOrder() {
+		
+		List<T> list = new ArrayList<>();
+		for (List<T> group : groups.values()) list.addAll(group);
+		return list;
+	}
+	
+	/**
+	 * Returns the tags without a readable signature.
+	 * 
+	 * @return the tags without signature
+	 */
+	public List<T> getUnidentified() {
+		return unidentified;
+	}
+	
+	/**
+	 * Returns the number of tags found by the session.
+	 * 
+	 * @return the number of tags
+	 */
+	public int size() {
+		
+		int size = unidentified.size();
+		for (Map.Entry<String, List<T>> elm : groups.entrySet()) size += elm.getValue().size();
+		return size;
+	}
+	
+	/**
+	 * Checks if the session stopped because the discovery rate converged.
+	 * Sessions stopped by the maximum number of cycles or by stopping
+	 * the session are not converged.
+	 * 
+	 * @return true if the discovery rate converged
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+}
@@ -0,0 +1,448 @@
+package de.thkoeln.bibl.api.rfid.reader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import de.feig.FedmException;
+import de.feig.FedmIscReaderConst;
+import de.feig.TagHandler.FedmIscTagHandler;
+import de.thkoeln.bibl.api.rfid.tag.BaseTag;
+import de.thkoeln.bibl.api.rfid.tag.BibliothecaTag;
+import de.thkoeln.bibl.api.rfid.tag.LibraryTag;
+import de.thkoeln.bibl.api.rfid.tag.TagException;
+import de.thkoeln.bibl.api.rfid.tag.TagIOException;
+import de.thkoeln.bibl.api.rfid.tag.data.DDMData;
+import de.thkoeln.bibl.api.rfid.tag.data.ISO28560Data;
+import de.thkoeln.bibl.api.rfid.tag.data.TagData;
+
+/**
+ * Class implements an inventory session for the stocktake of a shelf or
+ * a whole branch. The session runs repeated inventory cycles in host mode
+ * until the rate of newly found UIDs converges, so the session knows when
+ * the inventory is complete.
+ * 
+ * The session stops, if the rate of new tags in relation to all found tags
+ * stays at or below the threshold for a number of consecutive cycles. The
+ * antennas can be queried one by one in consecutive cycles, to reduce the
+ * collisions of a single inventory. Cycles finding new tags are repeated
+ * without delay, the read interval is only waited if no new tags are
+ * found. If the antennas are cycled, the stable cycles must cover every
+ * antenna at least once. A failed inventory is retried after the read
+ * interval, doubled for each further failure up to 2 seconds.
+ * 
+ * New tags are created and reported to the registered listeners like in
+ * the HostReader. Tags that could't be read are retried in later cycles.
+ * The result holds the statistics of each cycle and the found tags grouped
+ * by their signature in shelf order.
+ * 
+ * @see InventoryResult
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <T> the type of tags the session can handle
+ */
+public class InventorySession<T extends BaseTag> extends Reader<T> {
+	
+	private int minCycles = 3;
+	private int maxCycles = 100;
+	private int stableCycles = 3;
+	private double threshold = 0.001;
+	private int readInterval = 100;
+	private byte mode = 0;
+	private byte antennas = 1;
+	private boolean cycleAntennas = false;
+	private Comparator<String> shelfOrder;
+	
+	private volatile boolean isRunning;
+	private volatile InventoryResult<T> result;
+	private Thread worker;
+	
+	/**
+	 * Initialize a new InventorySession.
+	 * 
+	 * @param tagClass the tag class the session handles
+	 * @param con the connection used to communicate with the reader
+	 * @param cacheSize the initial cache size for storing tags
+	 * @throws FedmException if the ISO table could't initialized
+	 */
+	public InventorySession(Class<T> tagClass, ReaderConnection con,
+			int cacheSize) throws FedmException {
+		
+		super(tagClass, con, cacheSize);
+		
+		// set ISO table size
+		reader.setTableSize(FedmIscReaderConst.ISO_TABLE, cacheSize);
+	}
+	
+	/**
+	 * Initialize a new InventorySession with default values.
+	 * 
+	 * @param tagClass the tag class the session handles
+	 * @param con the connection used to communicate with the reader
+	 * @throws FedmException if the ISO table could't initialized
+	 */
+	public InventorySession(Class<T> tagClass, ReaderConnection con)
+			throws FedmException {
+		
+		// default table size
+		this(tagClass, con, 256);
+	}
+	
+	/**
+	 * Sets the number of cycles that are run at least.
+	 * 
+	 * @param minCycles the minimum number of cycles
+	 */
+	public void setMinCycles(int minCycles) {
+		this.minCycles = minCycles;
+	}
+	
+	/**
+	 * Sets the number of cycles after which the session stops, even if
+	 * the discovery rate didn't converge.
+	 * 
+	 * @param maxCycles the maximum number of cycles
+	 */
+	public void setMaxCycles(int maxCycles) {
+		this.maxCycles = maxCycles;
+	}
+	
+	/**
+	 * Sets the convergence criterion. The session stops, if the rate of
+	 * new tags stays at or below the threshold for the supplied number of
+	 * consecutive cycles.
+	 * 
+	 * @param threshold the maximum rate of new tags, between 0 and 1
+	 * @param stableCycles the number of consecutive cycles
+	 */
+	public void setConvergence(double threshold, int stableCycles) {
+		
+		if (threshold < 0 || threshold > 1)
+			throw new IllegalArgumentException("invalid threshold: " + threshold);
+		
+		this.threshold = threshold;
+		this.stableCycles = Math.max(1, stableCycles);
+	}
+	
+	/**
+	 * Sets the interval the session waits after a cycle without new tags.
+	 * 
+	 * @param readInterval the interval in milliseconds
+	 */
+	public void setReadInterval(int readInterval) {
+		this.readInterval = readInterval;
+	}
+	
+	/**
+	 * Sets the inventory mode passed to the reader.
+	 * 
+	 * @param mode the inventory mode
+	 */
+	public void setMode(byte mode) {
+		this.mode = mode;
+	}
+	
+	/**
+	 * Sets the antennas used for the inventory. If the antennas are
+	 * cycled, each cycle queries a single antenna of the mask.
+	 * 
+	 * @param antennas the antenna mask
+	 * @param cycleAntennas true to query the antennas one by one
+	 */
+	public void setAntennas(byte antennas, boolean cycleAntennas) {
+		this.antennas = antennas;
+		this.cycleAntennas = cycleAntennas;
+	}
+	
+	/**
+	 * Sets the order of the signatures. The default order is the
+	 * natural order of the signatures.
+	 * 
+	 * @param shelfOrder the comparator for the signatures or null for
+	 * the natural order
+	 */
+	public void setShelfOrder(Comparator<String> shelfOrder) {
+		this.shelfOrder = shelfOrder;
+	}
+	
+	/**
+	 * Returns the result of the last completed session.
+	 * 
+	 * @return the result or null if no session was completed
+	 */
+	public InventoryResult<T> getResult() {
+		return result;
+	}
+	
+	/**
+	 * Checks if a session is running.
+	 * 
+	 * @return true if a session is running
+	 */
+	public boolean isRunning() {
+		return isRunning;
+	}
+	
+	/**
+	 * Starts a session in the background. The result is available by
+	 * getResult() after the session was completed.
+	 */
+	@Override
+	public synchronized void start() {
+		
+		if (isRunning) return;
+		isRunning = true;
+		
+		worker = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				runSession();
+			}
+		}, "Inventory Thread " + getClass().getCanonicalName());
+		
+		worker.start();
+	}
+	
+	/**
+	 * Stops the running session after the current cycle.
+	 */
+	@Override
+	public synchronized void stop() {
+		
+		if (!isRunning) return;
+		isRunning = false;
+		
+		if (worker == null || worker == Thread.currentThread()) return;
+		
+		try {worker.join(2000);}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Runs a session in the calling thread and returns the result
+	 * after the discovery rate converged, the maximum number of cycles
+	 * was reached or the session was stopped.
+	 * 
+	 * @return the result of the session
+	 */
+	public InventoryResult<T> inventory() {
+		
+		synchronized (this) {
+			if (isRunning) throw new IllegalStateException("session already running");
+			isRunning = true;
+		}
+		return runSession();
+	}
+	
+	/**
+	 * Runs the inventory cycles.
+	 * 
+	 * @return the result of the session
+	 */
+	private InventoryResult<T> runSession() {
+		
+		List<InventoryCycle> cycles = new ArrayList<>();
+		Set<String> detected = new HashSet<>();
+		Map<String, T> found = new HashMap<>();
+		int[] ants = getAntennaMasks();
+		int stable = 0;
+		int errors = 0;
+		boolean converged = false;
+		
+		try {
+			for (int nr = 1; nr <= maxCycles && isRunning; nr++) {
+				
+				long start = System.currentTimeMillis();
+				byte ant = (byte)ants[(nr - 1) % ants.length];
+				Map<String, FedmIscTagHandler> map;
+				
+				// run inventory
+				try { map = reader.tagInventory(true, mode, ant); }
+				catch (Exception e) {
+					readerError(new ReaderException("could not inventory", e));
+					
+					// a failed cycle doesn't count as stable, back off before retry
+					stable = 0;
+					errors++;
+					if (!pause(Math.min(Math.max(readInterval, 10) << Math.min(errors - 1, 8), 2000)))
+						break;
+					continue;
+				}
+				errors = 0;
+				
+				int discovered = 0;
+				for (Map.Entry<String, FedmIscTagHandler> elm : map.entrySet()) {
+					
+					String uid = elm.getKey();
+					tagDetected(uid);
+					
+					if (detected.add(uid)) discovered++;
+					if (!found.containsKey(uid)) processTag(uid, elm.getValue(), found);
+				}
+				
+				InventoryCycle cycle = new InventoryCycle(nr, ant & 0xFF, map.size(),
+						discovered, detected.size(), System.currentTimeMillis() - start);
+				cycles.add(cycle);
+				
+				// check convergence of the discovery rate over all antennas
+				stable = (cycle.getDiscoveryRate() <= threshold) ? stable + 1 : 0;
+				
+				if (nr >= minCycles && stable >= Math.max(stableCycles, ants.length)) {
+					converged = true;
+					break;
+				}
+				
+				// repeat immediately while new tags are found
+				if (discovered == 0 && readInterval > 0 && !pause(readInterval)) break;
+			}
+		}
+		finally {
+			isRunning = false;
+		}
+		
+		result = createResult(cycles, found.values(), converged);
+		return result;
+	}
+	
+	/**
+	 * Waits the supplied time between two cycles.
+	 * 
+	 * @param millis the time to wait in milliseconds
+	 * @return false if the thread was interrupted
+	 */
+	private boolean pause(int millis) {
+		
+		try {Thread.sleep(millis);}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Creates and reports a new tag. Tags already known by the reader
+	 * are reused.
+	 * 
+	 * @param uid the UID of the tag
+	 * @param handler the handler of the tag
+	 * @param found the tags found by the session
+	 */
+	@SuppressWarnings("unchecked")
+	private void processTag(String uid, FedmIscTagHandler handler, Map<String, T> found) {
+		
+		if (containsTag(uid)) {
+			found.put(uid, (T)getTags().get(uid));
+			return;
+		}
+		
+		// inform listener about new tag
+		newTagDetected(uid);
+		
+		try {
+			T tag = addTag(uid, handler);
+			found.put(uid, tag);
+			newTagProcessed(tag);
+		}
+		catch (Exception e) {
+			// ignore TagIOException caused by bad tag detection, retry later
+			if (e.getCause() == null || e.getCause().getClass() != TagIOException.class)
+				tagError(new TagException("could not create tag", e));
+		}
+	}
+	
+	/**
+	 * Groups the found tags by their signature.
+	 * 
+	 * @param cycles the statistics of all cycles
+	 * @param tags the found tags
+	 * @param converged true if the discovery rate converged
+	 * @return the result of the session
+	 */
+	private InventoryResult<T> createResult(List<InventoryCycle> cycles,
+			Iterable<T> tags, boolean converged) {
+		
+		TreeMap<String, List<T>> groups = new TreeMap<>(shelfOrder);
+		List<T> unidentified = new ArrayList<>();
+		
+		for (T tag : tags) {
+			
+			String signature = getSignature(tag);
+			
+			if (signature == null || signature.isEmpty()) {
+				unidentified.add(tag);
+				continue;
+			}
+			
+			List<T> group = groups.get(signature);
+			if (group == null) groups.put(signature, group = new ArrayList<>(1));
+			group.add(tag);
+		}
+		
+		// order tags of a signature by UID
+		for (List<T> group : groups.values())
+			if (group.size() > 1) Collections.sort(group);
+		Collections.sort(unidentified);
+		
+		return new InventoryResult<>(cycles, groups, unidentified, converged);
+	}
+	
+	/**
+	 * Returns the signature of a tag, used to group the tags in shelf order.
+	 * The default implementation reads the signature from the DDM or
+	 * ISO 28560-2 data model of LibraryTag and BibliothecaTag.
+	 * 
+	 * @param tag the tag to get the signature from
+	 * @return the signature or null if the tag has no signature
+	 */
+	protected String getSignature(T tag) {
+		return readSignature(tag);
+	}
+	
+	/**
+	 * Reads the signature from the DDM or ISO 28560-2 data model of
+	 * LibraryTag and BibliothecaTag.
+	 * 
+	 * @param tag the tag to read the signature from
+	 * @return the signature or null if the tag has no signature
+	 */
+	static String readSignature(BaseTag tag) {
+		
+		TagData model = null;
+		
+		if (tag instanceof BibliothecaTag) model = ((BibliothecaTag)tag).getDataModel();
+		else if (tag instanceof LibraryTag) model = ((LibraryTag)tag).getDataModel();
+		
+		if (model instanceof DDMData) return ((DDMData)model).getSignature();
+		if (model instanceof ISO28560Data) return ((ISO28560Data)model).getSignature();
+		return null;
+	}
+	
+	/**
+	 * Returns the antenna masks queried in consecutive cycles.
+	 * 
+	 * @return the antenna masks
+	 */
+	private int[] getAntennaMasks() {
+		
+		int mask = antennas & 0xFF;
+		if (!cycleAntennas || Integer.bitCount(mask) < 2) return new int[] {mask};
+		
+		// single antenna per cycle
+		int[] masks = new int[Integer.bitCount(mask)];
+		for (int i = 0, bit = 1; bit <= 0x80; bit <<= 1)
+			if ((mask & bit) != 0) masks[i++] = bit;
+		
+		return masks;
+	}
+}
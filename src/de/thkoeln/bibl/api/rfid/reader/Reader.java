@@ -1,5 +1,6 @@
 package de.thkoeln.bibl.api.rfid.reader;
 
+import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
@@ -11,6 +12,7 @@ import de.feig.TagHandler.FedmIscTagHandler;
 import de.thkoeln.bibl.api.rfid.tag.BaseTag;
 import de.thkoeln.bibl.api.rfid.tag.TagException;
 import de.thkoeln.bibl.api.rfid.tag.TagFactory;
+import de.thkoeln.bibl.api.rfid.tag.TagSnapshot;
 
 /**
  * Class implements common functionality of a RFID reader.
@@ -21,6 +23,14 @@ import de.thkoeln.bibl.api.rfid.tag.TagFactory;
  * tag-data is stored in an hash-map for fast access and to guaranty only 
  * unique stored tags.
  * 
+ * The tag handler of a new tag is released after all listeners processed
+ * the tag, so stored and reported tags don't reference the reader.
+ * Afterwards writeData(), writeDataModel() and writeAFI(int) of a stored
+ * tag fail and data beyond the ReadProfile can't be loaded, isDataLoaded()
+ * tells if the tag data is complete. Listeners which need the complete
+ * data should load it in newTagProcessed(). Tags which should be written
+ * later must keep their handler, see setKeepHandlers(boolean).
+ * 
  * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
  * 
  * @param <T> the type of tags the reader can handle
@@ -33,6 +43,7 @@ public abstract class Reader<T extends BaseTag> {
 	private Map<String, ? super T> tags;
 	private Class<T> tagClass;
 	private List<ReaderListener<? super T>> listener;
+	private volatile boolean keepHandlers;
 	
 	/**
 	 * Initialize a new Reader.
@@ -83,6 +94,28 @@ public abstract class Reader<T extends BaseTag> {
 		return con;
 	}
 	
+	/**
+	 * Checks if new tags keep their tag handler after processing.
+	 * 
+	 * @return true if the tag handlers are kept
+	 */
+	public boolean isKeepHandlers() {
+		return keepHandlers;
+	}
+	
+	/**
+	 * Defines if new tags keep their tag handler after all listeners
+	 * processed the tag. Tags with a handler can load missing data and
+	 * write to the tag later, but they reference the reader. By default
+	 * the handlers are released, so stored tags can't be written and
+	 * only hold the data of their ReadProfile.
+	 * 
+	 * @param keepHandlers true to keep the tag handlers
+	 */
+	public void setKeepHandlers(boolean keepHandlers) {
+		this.keepHandlers = keepHandlers;
+	}
+	
 	/**
 	 * Returns a map of tags from the internal map.
 	 * The tags are indexed by their UID.
@@ -93,6 +126,41 @@ public abstract class Reader<T extends BaseTag> {
 		return tags;
 	}
 	
+	/**
+	 * Returns an immutable snapshot of the tag mapped to the supplied UID.
+	 * 
+	 * @param uid the UID of the tag
+	 * @return the snapshot of the tag or null if no tag is mapped to the UID
+	 */
+	public TagSnapshot getSnapshot(String uid) {
+		
+		Object tag = tags.get(uid);
+		return (tag instanceof BaseTag) ? ((BaseTag)tag).snapshot() : null;
+	}
+	
+	/**
+	 * Returns immutable snapshots of all tags from the internal map. The
+	 * snapshots don't hold the tag handler and can be published to other
+	 * threads without synchronization.
+	 * 
+	 * @return a list with the snapshots of all tags
+	 */
+	public List<TagSnapshot> getSnapshots() {
+		
+		List<Object> values;
+		
+		// copy values, iteration must be synchronized
+		synchronized (tags) {
+			values = new ArrayList<Object>(tags.values());
+		}
+		
+		List<TagSnapshot> snapshots = new ArrayList<>(values.size());
+		for (Object tag : values)
+			if (tag instanceof BaseTag) snapshots.add(((BaseTag)tag).snapshot());
+		
+		return snapshots;
+	}
+	
 	/**
 	 * Add a tag to the internal map. The tag will be
 	 * indexed by it's UID.
@@ -166,13 +234,16 @@ public abstract class Reader<T extends BaseTag> {
 	}
 
 	/**
-	 * Report a processed tag to all registered listeners.
+	 * Report a processed tag to all registered listeners. Afterwards
+	 * the tag handler is released, unless the handlers are kept.
 	 * 
 	 * @param tag the tag that was processed by the reader
 	 */
 	protected void newTagProcessed(T tag) {
 		for (ReaderListener<? super T> lis : listener)
 			lis.newTagProcessed(tag);
+		
+		if (!keepHandlers) tag.releaseHandler();
 	}
 
 	/**
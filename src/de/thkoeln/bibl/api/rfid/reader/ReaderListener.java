@@ -32,7 +32,9 @@ public interface ReaderListener<T extends BaseTag> extends EventListener {
 	
 	/**
 	 * Invoked when a new tag was successfully read and all 
-	 * tag related data is available.
+	 * tag related data is available. The tag handler is released
+	 * after all listeners were invoked, unless the reader keeps
+	 * the handlers.
 	 * 
 	 * @param tag the tag that was processed by the reader
 	 */
@@ -0,0 +1,329 @@
+package de.thkoeln.bibl.api.rfid.reader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.thkoeln.bibl.api.media.AbstractMediaNumber;
+import de.thkoeln.bibl.api.media.LibraryMedia;
+import de.thkoeln.bibl.api.media.MediaGroup;
+import de.thkoeln.bibl.api.rfid.tag.BaseTag;
+import de.thkoeln.bibl.api.rfid.tag.TagException;
+
+/**
+ * Class implements a shelf order check for the tags read while sweeping a
+ * shelf. The tags are mapped by their signature to the media of a
+ * MediaGroup, which defines the correct order of the collection.
+ * 
+ * The media read in correct order form the longest increasing subsequence
+ * of the collection indices in read order, all other media are misplaced.
+ * Moving the misplaced media is the minimal number of moves to restore
+ * the shelf order. The subsequence is updated with every read in
+ * O(log n), so the number of moves is available in real time while
+ * sweeping. The misplaced media are determined on request in O(n log n).
+ * 
+ * The analyzer can be registered as listener of a reader, each processed
+ * tag is added in the order it was reported. Media read more than once
+ * are added only the first time, signatures not found in the group are
+ * reported as unknown.
+ * 
+ * The collection indices are taken from the group when the analyzer is
+ * created or reset. Instances of this class are thread safe.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ * @param <T> the type of tags the analyzer can handle
+ * @param <M> the type of media the group holds
+ */
+public class ShelfOrderAnalyzer<T extends BaseTag, M extends LibraryMedia<? extends AbstractMediaNumber>>
+		implements ReaderListener<T> {
+	
+	private MediaGroup<M> group;
+	private Map<String, Integer> ranks;
+	private List<M> media;
+	
+	private Set<String> read;
+	private List<String> unknown;
+	
+	// sequence of read media
+	private List<M> seq;
+	private int[] seqRank;
+	private int[] prev;
+	
+	// index of the smallest tail of all increasing subsequences by length
+	private int[] tails;
+	private int length;
+	
+	/**
+	 * Initialize a new ShelfOrderAnalyzer for the supplied group.
+	 * 
+	 * @param group the group defining the correct order
+	 */
+	public ShelfOrderAnalyzer(MediaGroup<M> group) {
+		this.group = group;
+		reset();
+	}
+	
+	/**
+	 * Clears all read media and takes the collection indices from the
+	 * group again.
+	 */
+	public synchronized void reset() {
+		
+		// index media by collection order
+		ranks = new HashMap<>(group.size() * 4 / 3 + 1);
+		media = new ArrayList<>(group.getValues());
+		
+		for (int i = 0; i < media.size(); i++)
+			ranks.put(media.get(i).getMediaNumber().getNumber(), i);
+		
+		read = new HashSet<>();
+		unknown = new ArrayList<>();
+		seq = new ArrayList<>();
+		seqRank = new int[16];
+		prev = new int[16];
+		tails = new int[16];
+		length = 0;
+	}
+	
+	/**
+	 * Adds the media of the supplied tag to the read sequence.
+	 * 
+	 * @param tag the tag read
+	 * @return true if the media was added, false if the tag has no
+	 * signature, the media is unknown or was already read
+	 */
+	public boolean add(T tag) {
+		
+		String signature = getSignature(tag);
+		return (signature != null) ? add(signature) : false;
+	}
+	
+	/**
+	 * Adds the media with the supplied media number to the read sequence.
+	 * 
+	 * @param mediaNr the media number read
+	 * @return true if the media was added, false if the media is unknown
+	 * or was already read
+	 */
+	public synchronized boolean add(String mediaNr) {
+		
+		Integer rank = ranks.get(mediaNr);
+		
+		if (rank == null) {
+			unknown.add(mediaNr);
+			return false;
+		}
+		if (!read.add(mediaNr)) return false;
+		
+		int idx = seq.size();
+		seq.add(media.get(rank));
+		
+		if (idx == seqRank.length) {
+			seqRank = Arrays.copyOf(seqRank, idx * 2);
+			prev = Arrays.copyOf(prev, idx * 2);
+			tails = Arrays.copyOf(tails, idx * 2);
+		}
+		seqRank[idx] = rank;
+		
+		// find the longest subsequence the media can extend
+		int lo = 0;
+		int hi = length;
+		
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (seqRank[tails[mid]] < rank) lo = mid + 1;
+			else hi = mid;
+		}
+		
+		prev[idx] = (lo > 0) ? tails[lo - 1] : -1;
+		tails[lo] = idx;
+		if (lo == length) length++;
+		
+		return true;
+	}
+	
+	/**
+	 * Returns the number of media read.
+	 * 
+	 * @return the number of media in the read sequence
+	 */
+	public synchronized int size() {
+		return seq.size();
+	}
+	
+	/**
+	 * Returns the minimal number of moves to restore the shelf order of
+	 * the read media.
+	 * 
+	 * @return the number of misplaced media
+	 */
+	public synchronized int getMoveCount() {
+		return seq.size() - length;
+	}
+	
+	/**
+	 * Returns the read media in correct order, the longest increasing
+	 * subsequence of the read sequence.
+	 * 
+	 * @return the media in correct order
+	 */
+	public synchronized List<M> getOrdered() {
+		
+		List<M> list = new ArrayList<>(length);
+		for (int idx : getOrderedIndices()) list.add(seq.get(idx));
+		return list;
+	}
+	
+	/**
+	 * Returns the misplaced media with their target position. The list
+	 * is ordered by the read sequence.
+	 * 
+	 * @return the misplaced media
+	 */
+	public synchronized List<Misplacement<M>> getMisplaced() {
+		
+		int[] ordered = getOrderedIndices();
+		int[] orderedRank = new int[ordered.length];
+		for (int i = 0; i < ordered.length; i++) orderedRank[i] = seqRank[ordered[i]];
+		
+		List<Misplacement<M>> list = new ArrayList<>(seq.size() - length);
+		int next = 0;
+		
+		for (int idx = 0; idx < seq.size(); idx++) {
+			
+			// skip media in correct order
+			if (next < ordered.length && ordered[next] == idx) {
+				next++;
+				continue;
+			}
+			
+			// target after the ordered media with the next lower index
+			int pos = -Arrays.binarySearch(orderedRank, seqRank[idx]) - 1;
+			M after = (pos > 0) ? seq.get(ordered[pos - 1]) : null;
+			
+			list.add(new Misplacement<>(seq.get(idx), idx, after));
+		}
+		return list;
+	}
+	
+	/**
+	 * Returns the signatures read, which are not part of the group.
+	 * 
+	 * @return the unknown signatures in read order
+	 */
+	public synchronized List<String> getUnknown() {
+		return new ArrayList<>(unknown);
+	}
+	
+	@Override
+	public void tagDetected(String uid) {}
+	
+	@Override
+	public void newTagDetected(String uid) {}
+	
+	@Override
+	public void newTagProcessed(T tag) {
+		add(tag);
+	}
+	
+	@Override
+	public void tagError(TagException e) {}
+	
+	@Override
+	public void readerError(ReaderException e) {}
+	
+	/**
+	 * Returns the signature of a tag, used to find the media in the group.
+	 * The default implementation reads the signature from the DDM or
+	 * ISO 28560-2 data model of LibraryTag and BibliothecaTag.
+	 * 
+	 * @param tag the tag to get the signature from
+	 * @return the signature or null if the tag has no signature
+	 */
+	protected String getSignature(T tag) {
+		return InventorySession.readSignature(tag);
+	}
+	
+	/**
+	 * Returns the read sequence indices of the longest increasing
+	 * subsequence.
+	 * 
+	 * @return the indices in ascending order
+	 */
+	private int[] getOrderedIndices() {
+		
+		int[] ordered = new int[length];
+		int idx = (length > 0) ? tails[length - 1] : -1;
+		
+		for (int i = length - 1; i >= 0; i--) {
+			ordered[i] = idx;
+			idx = prev[idx];
+		}
+		return ordered;
+	}
+	
+	/**
+	 * Class describes a misplaced media and the position it must be
+	 * moved to.
+	 * 
+	 * @param <M> the type of media
+	 */
+	public static class Misplacement<M> {
+		
+		private M media;
+		private int position;
+		private M after;
+		
+		/**
+		 * Initialize a new Misplacement.
+		 * 
+		 * @param media the misplaced media
+		 * @param position the position in the read sequence
+		 * @param after the media to place the misplaced media after
+		 */
+		private Misplacement(M media, int position, M after) {
+			this.media = media;
+			this.position = position;
+			this.after = after;
+		}
+		
+		/**
+		 * Returns the misplaced media.
+		 * 
+		 * @return the media
+		 */
+		public M getMedia() {
+			return media;
+		}
+		
+		/**
+		 * Returns the position of the media in the read sequence.
+		 * 
+		 * @return the read position, starting with 0
+		 */
+		public int getPosition() {
+			return position;
+		}
+		
+		/**
+		 * Returns the correctly placed media the misplaced media must be
+		 * placed after.
+		 * 
+		 * @return the media to place after or null if the misplaced media
+		 * belongs in front of all correctly placed media
+		 */
+		public M getAfter() {
+			return after;
+		}
+		
+		@Override
+		public String toString() {
+			return media + " -> after " + after;
+		}
+	}
+}
@@ -0,0 +1,426 @@
+package de.thkoeln.bibl.api.rfid.reader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+
+import de.thkoeln.bibl.api.rfid.tag.BaseTag;
+import de.thkoeln.bibl.api.rfid.tag.ISO15693Tag;
+import de.thkoeln.bibl.api.rfid.tag.TagException;
+import de.thkoeln.bibl.api.rfid.tag.TagSnapshot;
+
+/**
+ * Class implements an append-only journal of reader events. The journal
+ * is registered as listener of a reader and records every detected and
+ * processed tag with the time, the reader id, the UID, the RSSI, the AFI
+ * and the hash of the tag data. The journal can be replayed by the
+ * TagJournalReplay.
+ * 
+ * The journal is written to segment files of a fixed size in the journal
+ * directory. Each segment is mapped into memory, a new segment is started
+ * if a record doesn't fit into the current segment. A record is prefixed
+ * by it's length, which is written after the record data, so a record
+ * interrupted by a crash is never read. Opening an existing journal
+ * continues after the last complete record.
+ * 
+ * Errors are not recorded, because they don't describe a tag seen by
+ * the reader.
+ * 
+ * A journal never throws from the listener methods, so it can't stop the
+ * reader it observes. If a record can't be written, e.g. because the
+ * storage device is full, the error is kept and all further records are
+ * dropped. Events after closing the journal are dropped as well. Dropped
+ * records are counted.
+ * 
+ * Instances of this class are thread safe.
+ * 
+ * @see TagJournalReplay
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class TagJournal implements ReaderListener<BaseTag>, Closeable, Flushable {
+	
+	/** default segment size, 16 MiB */
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+	
+	/** event type of a detected tag */
+	public static final int TAG_DETECTED = 1;
+	
+	/** event type of a new, previously unknown, detected tag */
+	public static final int NEW_TAG_DETECTED = 2;
+	
+	/** event type of a processed tag */
+	public static final int NEW_TAG_PROCESSED = 3;
+	
+	static final int MAGIC = 0x544A524E;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 8;
+	static final String SEGMENT_PREFIX = "journal-";
+	static final String SEGMENT_SUFFIX = ".tjr";
+	
+	private File dir;
+	private String readerID;
+	private int segmentSize;
+	private int segmentNr;
+	
+	private MappedByteBuffer buffer;
+	private ByteArrayOutputStream bytes;
+	private DataOutputStream out;
+	
+	private IOException error;
+	private long dropped;
+	
+	/**
+	 * Initialize a new TagJournal with the default segment size.
+	 * 
+	 * @param dir the journal directory
+	 * @param readerID the id of the reader recorded with each event
+	 * @throws IOException if the journal could't be opened
+	 */
+	public TagJournal(File dir, String readerID) throws IOException {
+		this(dir, readerID, DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/**
+	 * Initialize a new TagJournal. An existing journal in the supplied
+	 * directory is continued.
+	 * 
+	 * @param dir the journal directory
+	 * @param readerID the id of the reader recorded with each event
+	 * @param segmentSize the size of a segment file in bytes
+	 * @throws IOException if the journal could't be opened
+	 */
+	public TagJournal(File dir, String readerID, int segmentSize) throws IOException {
+		
+		if (segmentSize < 1024)
+			throw new IllegalArgumentException("invalid segment size: " + segmentSize);
+		
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("could't create journal directory: " + dir);
+		
+		this.dir = dir;
+		this.readerID = (readerID != null) ? readerID : "";
+		this.segmentSize = segmentSize;
+		
+		bytes = new ByteArrayOutputStream(128);
+		out = new DataOutputStream(bytes);
+		
+		// continue last segment or start a new one
+		File[] segments = listSegments(dir);
+		
+		if (segments.length == 0) openSegment(0);
+		else {
+			File last = segments[segments.length - 1];
+			openSegment(getSegmentNr(last));
+			buffer.position(findEnd(buffer));
+			
+			// clear remains of a record interrupted by a crash
+			for (int i = buffer.position(); i < buffer.limit(); i++)
+				if (buffer.get(i) != 0) buffer.put(i, (byte)0);
+		}
+	}
+	
+	/**
+	 * Returns the journal directory.
+	 * 
+	 * @return the journal directory
+	 */
+	public File getDirectory() {
+		return dir;
+	}
+	
+	/**
+	 * Returns the id of the reader recorded with each event.
+	 * 
+	 * @return the reader id
+	 */
+	public String getReaderID() {
+		return readerID;
+	}
+	
+	/**
+	 * Returns the error which stopped the journal.
+	 * 
+	 * @return the error or null if all records were written
+	 */
+	public synchronized IOException getError() {
+		return error;
+	}
+	
+	/**
+	 * Returns the number of dropped records, after an error or after
+	 * closing the journal.
+	 * 
+	 * @return the number of dropped records
+	 */
+	public synchronized long getDropped() {
+		return dropped;
+	}
+	
+	@Override
+	public void tagDetected(String uid) {
+		append(TAG_DETECTED, uid, null, null, ISO15693Tag.AFI_NA, 0);
+	}
+	
+	@Override
+	public void newTagDetected(String uid) {
+		append(NEW_TAG_DETECTED, uid, null, null, ISO15693Tag.AFI_NA, 0);
+	}
+	
+	@Override
+	public void newTagProcessed(BaseTag tag) {
+		
+		int afi = ISO15693Tag.AFI_NA;
+		byte[] data = null;
+		
+		// hash the tag data without copying it
+		if (tag instanceof ISO15693Tag) {
+			afi = ((ISO15693Tag)tag).getAFI();
+			data = ((ISO15693Tag)tag).getData();
+		}
+		append(NEW_TAG_PROCESSED, tag.getUID(), tag.getName(), tag.getRSSI(), afi,
+				TagSnapshot.getDataHash(data));
+	}
+	
+	@Override
+	public void tagError(TagException e) {}
+	
+	@Override
+	public void readerError(ReaderException e) {}
+	
+	/**
+	 * Appends a record for the supplied tag snapshot. The snapshot
+	 * time is used as event time.
+	 * 
+	 * @param type the event type
+	 * @param snapshot the snapshot of the tag
+	 * @throws IOException if the record could't be written
+	 */
+	public synchronized void write(int type, TagSnapshot snapshot) throws IOException {
+		write(type, snapshot.getTime(), snapshot.getUID(), snapshot.getName(),
+				snapshot.getRSSI(), snapshot.getAFI(), snapshot.getDataHash());
+	}
+	
+	/**
+	 * Forces all written records to the storage device.
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		if (buffer != null) buffer.force();
+	}
+	
+	/**
+	 * Forces all written records to the storage device and closes the
+	 * current segment.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		
+		if (buffer == null) return;
+		
+		buffer.force();
+		buffer = null;
+	}
+	
+	/**
+	 * Appends a record for a reader event. The listener methods can't
+	 * throw an IOException, so the first error is kept and the record
+	 * and all further records are dropped.
+	 * 
+	 * @param type the event type
+	 * @param uid the UID of the tag
+	 * @param name the tag name or null if not available
+	 * @param rssi the RSSI of the tag or null if not available
+	 * @param afi the AFI of the tag
+	 * @param hash the hash of the tag data
+	 */
+	private synchronized void append(int type, String uid, String name,
+			Map<Integer, Integer> rssi, int afi, int hash) {
+		
+		// closed or failed journal
+		if (buffer == null || error != null) {
+			dropped++;
+			return;
+		}
+		
+		try { write(type, System.currentTimeMillis(), uid, name, rssi, afi, hash); }
+		catch (IOException | RuntimeException e) {
+			error = (e instanceof IOException) ? (IOException)e
+					: new IOException("could't write journal record", e);
+			dropped++;
+		}
+	}
+	
+	/**
+	 * Writes a record to the current segment, a new segment is started
+	 * if the record doesn't fit.
+	 * 
+	 * @param type the event type
+	 * @param time the event time in milliseconds since epoch
+	 * @param uid the UID of the tag
+	 * @param name the tag name or null if not available
+	 * @param rssi the RSSI of the tag or null if not available
+	 * @param afi the AFI of the tag
+	 * @param hash the hash of the tag data
+	 * @throws IOException if the record could't be written
+	 */
+	private void write(int type, long time, String uid, String name,
+			Map<Integer, Integer> rssi, int afi, int hash) throws IOException {
+		
+		if (buffer == null) throw new IOException("journal closed");
+		
+		// encode record <type, time, reader, uid, name, rssi, afi, hash>
+		bytes.reset();
+		out.writeByte(type);
+		out.writeLong(time);
+		out.writeUTF(readerID);
+		out.writeUTF(uid);
+		
+		out.writeUTF(name != null ? name : "");
+		out.writeByte(rssi != null ? rssi.size() : 0);
+		
+		if (rssi != null) {
+			for (Map.Entry<Integer, Integer> elm : rssi.entrySet()) {
+				out.writeByte(elm.getKey());
+				out.writeByte(elm.getValue());
+			}
+		}
+		out.writeShort(afi);
+		out.writeInt(hash);
+		out.flush();
+		
+		int len = bytes.size();
+		
+		if (HEADER_SIZE + 4 + len > segmentSize)
+			throw new IOException("record exceeds segment size: " + len);
+		
+		// start new segment if the record doesn't fit
+		if (buffer.remaining() < 4 + len) {
+			buffer.force();
+			openSegment(segmentNr + 1);
+		}
+		
+		// write data first, length marks the record as complete
+		int pos = buffer.position();
+		buffer.position(pos + 4);
+		buffer.put(bytes.toByteArray(), 0, len);
+		buffer.putInt(pos, len);
+	}
+	
+	/**
+	 * Opens or creates the segment with the supplied number.
+	 * 
+	 * @param nr the segment number
+	 * @throws IOException if the segment could't be opened
+	 */
+	private void openSegment(int nr) throws IOException {
+		
+		File file = new File(dir, String.format("%s%08d%s", SEGMENT_PREFIX, nr, SEGMENT_SUFFIX));
+		boolean exists = file.length() > 0;
+		
+		// mapping stays valid after closing the file
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+					exists ? Math.max(raf.length(), HEADER_SIZE) : segmentSize);
+		}
+		
+		if (!exists) {
+			buffer.putInt(MAGIC);
+			buffer.putShort((short)VERSION);
+			buffer.putShort((short)0);
+		}
+		else checkHeader(buffer, file);
+		
+		buffer.position(HEADER_SIZE);
+		segmentNr = nr;
+	}
+	
+	/**
+	 * Checks the header of a segment.
+	 * 
+	 * @param buffer the mapped segment
+	 * @param file the segment file
+	 * @throws IOException if the header is invalid
+	 */
+	static void checkHeader(MappedByteBuffer buffer, File file) throws IOException {
+		
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new IOException("invalid journal segment: " + file);
+		
+		if (buffer.getShort(4) > VERSION)
+			throw new IOException("unsupported journal version: " + buffer.getShort(4));
+	}
+	
+	/**
+	 * Returns the position after the last complete record of a segment.
+	 * 
+	 * @param buffer the mapped segment
+	 * @return the end position of the records
+	 */
+	static int findEnd(MappedByteBuffer buffer) {
+		
+		int pos = HEADER_SIZE;
+		
+		while (pos + 4 <= buffer.limit()) {
+			int len = buffer.getInt(pos);
+			if (len <= 0 || pos + 4 + len > buffer.limit()) break;
+			pos += 4 + len;
+		}
+		return pos;
+	}
+	
+	/**
+	 * Returns the segment files of a journal directory, ordered by
+	 * their number.
+	 * 
+	 * @param dir the journal directory
+	 * @return the segment files
+	 */
+	static File[] listSegments(File dir) {
+		
+		File[] files = dir.listFiles(new FileFilter() {
+			
+			@Override
+			public boolean accept(File file) {
+				String name = file.getName();
+				return file.isFile() && name.startsWith(SEGMENT_PREFIX)
+						&& name.endsWith(SEGMENT_SUFFIX) && getSegmentNr(file) >= 0;
+			}
+		});
+		
+		if (files == null) return new File[0];
+		
+		// zero padded numbers, name order is segment order
+		Arrays.sort(files);
+		return files;
+	}
+	
+	/**
+	 * Returns the number of a segment file.
+	 * 
+	 * @param file the segment file
+	 * @return the segment number or -1 if the name is invalid
+	 */
+	static int getSegmentNr(File file) {
+		
+		String name = file.getName();
+		
+		try {
+			return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+					name.length() - SEGMENT_SUFFIX.length()));
+		}
+		catch (NumberFormatException | IndexOutOfBoundsException e) {
+			return -1;
+		}
+	}
+}
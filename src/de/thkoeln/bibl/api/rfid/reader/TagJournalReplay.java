@@ -0,0 +1,239 @@
+package de.thkoeln.bibl.api.rfid.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import de.thkoeln.bibl.api.rfid.tag.BaseTag;
+import de.thkoeln.bibl.api.rfid.tag.ISO15693Tag;
+
+/**
+ * Class implements the replay of a journal written by the TagJournal.
+ * The recorded events are delivered to a ReaderListener in their
+ * original order, at the original speed, accelerated or as fast as
+ * possible. The replay is used to recover the state of a reader after a
+ * crash, for auditing and to produce realistic load for benchmarks.
+ * 
+ * Processed tags are delivered as JournalTag, holding the recorded
+ * values of the tag. The journal holds no tag data, only it's hash.
+ * 
+ * @see TagJournal
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class TagJournalReplay {
+	
+	/** speed to replay the journal as fast as possible */
+	public static final double MAX_SPEED = 0;
+	
+	/** speed to replay the journal at the original speed */
+	public static final double ORIGINAL_SPEED = 1;
+	
+	private File dir;
+	
+	/**
+	 * Initialize a new TagJournalReplay for the supplied journal directory.
+	 * 
+	 * @param dir the journal directory
+	 */
+	public TagJournalReplay(File dir) {
+		this.dir = dir;
+	}
+	
+	/**
+	 * Replays the journal as fast as possible to the supplied listener.
+	 * 
+	 * @param listener the listener receiving the recorded events
+	 * @return the number of replayed events
+	 * @throws IOException if the journal could't be read
+	 */
+	public long replay(ReaderListener<? super JournalTag> listener) throws IOException {
+		return replay(listener, MAX_SPEED);
+	}
+	
+	/**
+	 * Replays the journal to the supplied listener. The delay between two
+	 * events is the recorded delay divided by the speed. The replay stops
+	 * if the current thread is interrupted.
+	 * 
+	 * @param listener the listener receiving the recorded events
+	 * @param speed the replay speed, 1 for the original speed, greater
+	 * values to accelerate and MAX_SPEED to replay without delay
+	 * @return the number of replayed events
+	 * @throws IOException if the journal could't be read
+	 */
+	public long replay(ReaderListener<? super JournalTag> listener, double speed)
+			throws IOException {
+		
+		if (speed < 0) throw new IllegalArgumentException("invalid speed: " + speed);
+		
+		long count = 0;
+		long first = -1;
+		long start = System.nanoTime();
+		
+		for (File file : TagJournal.listSegments(dir)) {
+			
+			MappedByteBuffer buffer = map(file);
+			int end = TagJournal.findEnd(buffer);
+			int pos = TagJournal.HEADER_SIZE;
+			
+			while (pos < end) {
+				
+				// read record data
+				int len = buffer.getInt(pos);
+				byte[] record = new byte[len];
+				buffer.position(pos + 4);
+				buffer.get(record);
+				pos += 4 + len;
+				
+				DataInput in = new DataInputStream(new ByteArrayInputStream(record));
+				int type = in.readUnsignedByte();
+				long time = in.readLong();
+				String readerID = in.readUTF();
+				
+				// wait for the scaled event time
+				if (first < 0) first = time;
+				if (speed > 0 && !await(start, (long)((time - first) / speed))) return count;
+				
+				switch (type) {
+				case TagJournal.TAG_DETECTED:
+					listener.tagDetected(in.readUTF());
+					break;
+				case TagJournal.NEW_TAG_DETECTED:
+					listener.newTagDetected(in.readUTF());
+					break;
+				case TagJournal.NEW_TAG_PROCESSED:
+					listener.newTagProcessed(new JournalTag(time, readerID, in));
+					break;
+				default:
+					// unknown events of later versions
+					continue;
+				}
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Waits until the supplied delay since the start is reached.
+	 * 
+	 * @param start the start of the replay in nanoseconds
+	 * @param delay the delay of the event in milliseconds
+	 * @return false if the thread was interrupted
+	 */
+	private static boolean await(long start, long delay) {
+		
+		long wait = delay - (System.nanoTime() - start) / 1000000;
+		if (wait <= 0) return true;
+		
+		try { Thread.sleep(wait); }
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Maps a segment file read only into memory.
+	 * 
+	 * @param file the segment file
+	 * @return the mapped segment
+	 * @throws IOException if the segment could't be mapped
+	 */
+	private static MappedByteBuffer map(File file) throws IOException {
+		
+		MappedByteBuffer buffer;
+		
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		}
+		TagJournal.checkHeader(buffer, file);
+		return buffer;
+	}
+	
+	/**
+	 * Class implements a tag restored from a journal record. The tag has
+	 * no tag handler and holds the recorded time, reader id, AFI and hash
+	 * of the tag data in addition to the UID, the tag name and the RSSI.
+	 */
+	public static class JournalTag extends BaseTag {
+		
+		private static final long serialVersionUID = 6914306413620155423L;
+		
+		private long time;
+		private String readerID;
+		private int afi;
+		private int dataHash;
+		
+		/**
+		 * Initialize a new JournalTag from a journal record.
+		 * 
+		 * @param time the recorded time
+		 * @param readerID the recorded reader id
+		 * @param in the data input positioned at the recorded UID
+		 * @throws IOException if the record could't be read
+		 */
+		private JournalTag(long time, String readerID, DataInput in) throws IOException {
+			
+			super(in);
+			
+			this.time = time;
+			this.readerID = readerID;
+			this.afi = in.readShort();
+			this.dataHash = in.readInt();
+		}
+		
+		/**
+		 * Returns the time the tag was recorded.
+		 * 
+		 * @return the time in milliseconds since epoch
+		 */
+		public long getTime() {
+			return time;
+		}
+		
+		/**
+		 * Returns the id of the reader that recorded the tag.
+		 * 
+		 * @return the reader id
+		 */
+		public String getReaderID() {
+			return readerID;
+		}
+		
+		/**
+		 * Returns the recorded AFI of the tag.
+		 * 
+		 * @return the AFI or ISO15693Tag.AFI_NA if the tag has no AFI
+		 */
+		public int getAFI() {
+			return afi;
+		}
+		
+		/**
+		 * Checks if the tag has a recorded AFI.
+		 * 
+		 * @return true if the tag has an AFI
+		 */
+		public boolean hasAFI() {
+			return afi != ISO15693Tag.AFI_NA;
+		}
+		
+		/**
+		 * Returns the recorded hash of the tag data.
+		 * 
+		 * @return the hash of the tag data
+		 */
+		public int getDataHash() {
+			return dataHash;
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package de.thkoeln.bibl.api.rfid.tag;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Field;
@@ -8,9 +11,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -28,6 +29,7 @@ import de.feig.FedmIscRssiItem;
 import de.feig.FedmIsoTableItem;
 import de.feig.FedmTableItem;
 import de.feig.TagHandler.FedmIscTagHandler;
+import de.thkoeln.bibl.api.io.XMLSerializer;
 
 /**
  * Class implements an easy access to basic RFID tags. Communication is
@@ -64,6 +66,28 @@ public class BaseTag implements Serializable, Comparable<BaseTag> {
 	 */
 	protected BaseTag() {}
 	
+	/**
+	 * Initialize a new BaseTag from the supplied binary representation.
+	 * 
+	 * @see #writeTo(DataOutput)
+	 * @param in the data input to read the tag from
+	 * @throws IOException if the tag could't be read
+	 */
+	protected BaseTag(DataInput in) throws IOException {
+		
+		uid = in.readUTF();
+		name = in.readUTF();
+		
+		// read RSSI <ant-idx, RSSI-value>
+		int count = in.readUnsignedByte();
+		
+		if (count > 0) {
+			rssi = new HashMap<>(count);
+			for (int i = 0; i < count; i++)
+				rssi.put(in.readUnsignedByte(), in.readUnsignedByte());
+		}
+	}
+	
 	/**
 	 * Initialize a new BaseTag with the supplied tag handler.
 	 * 
@@ -153,6 +177,15 @@ public class BaseTag implements Serializable, Comparable<BaseTag> {
 		return handler;
 	}
 	
+	/**
+	 * Releases the tag handler, so the tag no longer references the
+	 * reader. Afterwards the tag can't load missing data or write to the
+	 * tag, a handler from a new inventory must be used instead.
+	 */
+	public synchronized void releaseHandler() {
+		handler = null;
+	}
+	
 	/**
 	 * Returns the tag handler class, defined in the Feig API.
 	 * 
@@ -207,6 +240,16 @@ public class BaseTag implements Serializable, Comparable<BaseTag> {
 		return (rssi != null);
 	}
 	
+	/**
+	 * Returns an immutable snapshot of the tag without the tag handler,
+	 * which can be shared between threads.
+	 * 
+	 * @return the snapshot of the tag
+	 */
+	public TagSnapshot snapshot() {
+		return new TagSnapshot(this);
+	}
+	
 	/**
 	 * Serialize the object to an output stream as XML representation.
 	 * 
@@ -214,11 +257,32 @@ public class BaseTag implements Serializable, Comparable<BaseTag> {
 	 * @throws JAXBException if the object could't serialized
 	 */
 	public void serializeTo(OutputStream out) throws JAXBException {
-			
-		Marshaller marshaller = JAXBContext.newInstance(this.getClass())
-				.createMarshaller();
-		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-		marshaller.marshal(this, out);
+		XMLSerializer.serialize(this, out);
+	}
+	
+	/**
+	 * Writes the binary representation of the tag to the supplied data
+	 * output. Sub-classes must append their own fields after the fields
+	 * of the super-class.
+	 * 
+	 * @see TagCodec
+	 * @param out the data output to write the tag to
+	 * @throws IOException if the tag could't be written
+	 */
+	protected void writeTo(DataOutput out) throws IOException {
+		
+		out.writeUTF(uid);
+		out.writeUTF(name);
+		
+		// write RSSI <ant-idx, RSSI-value>
+		out.writeByte(hasRSSI() ? rssi.size() : 0);
+		
+		if (hasRSSI()) {
+			for (Entry<Integer, Integer> elm : rssi.entrySet()) {
+				out.writeByte(elm.getKey());
+				out.writeByte(elm.getValue());
+			}
+		}
 	}
 	
 	/**
@@ -1,5 +1,8 @@
 package de.thkoeln.bibl.api.rfid.tag;
 
+import java.io.DataInput;
+import java.io.IOException;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
@@ -13,6 +16,8 @@ import de.feig.FedmIscReader;
 import de.feig.FedmIsoTableItem;
 import de.feig.TagHandler.FedmIscTagHandler_ISO15693;
 import de.thkoeln.bibl.api.rfid.tag.data.DDMDataBibliotheca;
+import de.thkoeln.bibl.api.rfid.tag.data.TagDataCache;
+import de.thkoeln.bibl.api.rfid.tag.data.TagDataFormat;
 
 /**
  * Class extends the ISO 15693 RFID tag with the Bibliotheca specific
@@ -30,6 +35,11 @@ public class BibliothecaTag extends ISO15693Tag {
 
 	private static final long serialVersionUID = 2845935520930829738L;
 	
+	static {
+		// read only the Bibliotheca data model on initialization
+		ReadProfile.setProfile(BibliothecaTag.class, ReadProfile.DDM_BIBLIOTHECA);
+	}
+	
 	@XmlElement (name = "data-model", required = true)
 	private DDMDataBibliotheca model;
 	
@@ -38,6 +48,20 @@ public class BibliothecaTag extends ISO15693Tag {
 	 */
 	protected BibliothecaTag() {}
 	
+	/**
+	 * Initialize a new BibliothecaTag from the supplied binary representation.
+	 * The data model is rebuilt from the tag data.
+	 * 
+	 * @param in the data input to read the tag from
+	 * @throws IOException if the tag could't be read
+	 */
+	protected BibliothecaTag(DataInput in) throws IOException {
+		
+		super(in);
+		
+		model = decodeModel();
+	}
+	
 	/**
 	 * Initialize a new BibliothecaTag with the supplied tag handler.
 	 * 
@@ -54,7 +78,7 @@ public class BibliothecaTag extends ISO15693Tag {
 		
 		super(handler);
 		
-		model = new DDMDataBibliotheca(getData());
+		model = decodeModel();
 	}
 	
 	/**
@@ -75,7 +99,7 @@ public class BibliothecaTag extends ISO15693Tag {
 		
 		super(reader, tag);
 		
-		model = new DDMDataBibliotheca(getData());
+		model = decodeModel();
 	}
 	
 	/**
@@ -96,7 +120,18 @@ public class BibliothecaTag extends ISO15693Tag {
 		
 		super(reader, tag);
 		
-		model = new DDMDataBibliotheca(getData());
+		model = decodeModel();
+	}
+	
+	/**
+	 * Returns the data model decoded from the tag data. The data model
+	 * is taken from the default TagDataCache if the tag data is unchanged.
+	 * 
+	 * @return the decoded data model
+	 */
+	private DDMDataBibliotheca decodeModel() {
+		return (DDMDataBibliotheca)TagDataCache.getDefault().decode(getUID(), 
+				getData(), TagDataFormat.DDM_BIBLIOTHECA);
 	}
 	
 	/**
@@ -108,6 +143,19 @@ public class BibliothecaTag extends ISO15693Tag {
 		return model;
 	}
 	
+	/**
+	 * Writes the data model of the tag back to the tag. Modifications
+	 * of the data model must be done before with the setters of the 
+	 * data model.
+	 * 
+	 * @see ISO15693Tag#writeData(byte[])
+	 * @return the number of written blocks
+	 * @throws TagException if the data model could't be written
+	 */
+	public int writeDataModel() throws TagException {
+		return writeData(model);
+	}
+	
 	@Override
 	public String toString() {
 		return String.format("%s (%s)", model, getUID());
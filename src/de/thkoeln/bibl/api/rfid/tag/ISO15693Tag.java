@@ -1,5 +1,11 @@
 package de.thkoeln.bibl.api.rfid.tag;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
@@ -16,6 +22,8 @@ import de.feig.TagHandler.FedmIscTagHandler;
 import de.feig.TagHandler.FedmIscTagHandler_ISO15693;
 import de.feig.TagHandler.FedmIscTagHandler_ISO15693_TagInfoResult;
 import de.feig.TagHandler.FedmIscTagHandler_Result;
+import de.thkoeln.bibl.api.io.BinaryCodec;
+import de.thkoeln.bibl.api.rfid.tag.data.TagData;
 
 /**
  * Class extends the base RFID tag with ISO 15693 features. Communication 
@@ -24,7 +32,13 @@ import de.feig.TagHandler.FedmIscTagHandler_Result;
  * Instances of this class support XML serializing by JAXB.
  * 
  * On object initialization all tag information and data will be read 
- * from the tag and stored for later offline access.
+ * from the tag and stored for later offline access. Tags initialized with a
+ * tag handler only read the part of the data defined by the ReadProfile
+ * of the tag class, the remaining data is loaded on demand. Once the
+ * tag handler is released, missing data can't be loaded anymore.
+ * 
+ * Tags created with a tag handler support writing of the tag data. Only
+ * blocks that differ from the last read data are written to the tag.
  * 
  * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
  *
@@ -57,6 +71,24 @@ public class ISO15693Tag extends BaseTag {
 	 */
 	protected ISO15693Tag() {}
 	
+	/**
+	 * Initialize a new ISO15693Tag from the supplied binary representation.
+	 * 
+	 * @see #writeTo(DataOutput)
+	 * @param in the data input to read the tag from
+	 * @throws IOException if the tag could't be read
+	 */
+	protected ISO15693Tag(DataInput in) throws IOException {
+		
+		super(in);
+		
+		afi = in.readShort();
+		blockSize = in.readUnsignedShort();
+		sysSize = in.readUnsignedShort();
+		memSize = in.readInt();
+		data = BinaryCodec.readBytes(in);
+	}
+	
 	/**
 	 * Initialize a new ISO15693Tag with the supplied tag handler.
 	 * 
@@ -85,8 +117,9 @@ public class ISO15693Tag extends BaseTag {
 		// set blockSize
 		blockSize = handler.getTabItem().blockSize;
 		
-		// read tag payload
-		data = getPayload(handler, 0x00, memSize, false).data;
+		// read tag payload defined by the read profile
+		ReadProfile profile = ReadProfile.getProfile(getClass());
+		loadBlocks(profile.getBlockCount(blockSize, memSize));
 	}
 	
 	/**
@@ -138,14 +171,55 @@ public class ISO15693Tag extends BaseTag {
 	}
 	
 	/**
-	 * Returns the tag data (payload) as byte array.
+	 * Returns the loaded tag data (payload) as byte array. Depending on
+	 * the ReadProfile only a part of the tag memory is loaded.
 	 * 
+	 * @see #loadData()
 	 * @return the tag data
 	 */
 	public byte[] getData() {
 		return data;
 	}
 	
+	/**
+	 * Returns the tag data (payload) as byte array and loads missing 
+	 * blocks from the tag until at least the supplied number of bytes
+	 * is available or the end of the tag memory is reached.
+	 * 
+	 * @param size the minimum number of bytes to load
+	 * @return the tag data
+	 * @throws TagException if blocks are missing and the tag has no
+	 * tag handler to load them
+	 * @throws TagIOException if the communication with the tag failed
+	 */
+	public byte[] getData(int size) throws TagException, TagIOException {
+		requireBlocks(new ReadProfile(size).getBlockCount(blockSize, memSize));
+		return data;
+	}
+	
+	/**
+	 * Loads the remaining tag data (payload) which wasn't read on
+	 * initialization of the tag.
+	 * 
+	 * @return the complete tag data
+	 * @throws TagException if blocks are missing and the tag has no
+	 * tag handler to load them
+	 * @throws TagIOException if the communication with the tag failed
+	 */
+	public byte[] loadData() throws TagException, TagIOException {
+		requireBlocks(memSize);
+		return data;
+	}
+	
+	/**
+	 * Checks if the complete tag data (payload) is loaded.
+	 * 
+	 * @return true if the complete tag data is loaded
+	 */
+	public boolean isDataLoaded() {
+		return data != null && data.length >= memSize * blockSize;
+	}
+	
 	/**
 	 * Returns the AFI of the tag.
 	 * 
@@ -155,6 +229,61 @@ public class ISO15693Tag extends BaseTag {
 		return afi;
 	}
 	
+	/**
+	 * Writes the AFI to the tag with the tag handler of this tag.
+	 * 
+	 * @see #writeAFI(FedmIscTagHandler, int)
+	 * @param afi the AFI value to write
+	 * @throws TagException if the tag doesn't support writing
+	 * @throws TagIOException if the communication with the tag failed
+	 */
+	public void writeAFI(int afi) throws TagException, TagIOException {
+		
+		// writing requires a tag handler
+		if (handler == null) throw new TagException("tag doesn't support writing");
+		
+		writeAFI(handler, afi);
+	}
+	
+	/**
+	 * Writes the AFI to the tag with the supplied tag handler. The handler
+	 * must address the same tag, e.g. a handler from a new inventory for a 
+	 * tag read in buffered reader mode. The command is send addressed
+	 * unless the handler is set to non-addressed mode.
+	 * 
+	 * @param handler the handler of the tag
+	 * @param afi the AFI value to write
+	 * @throws TagException if the handler doesn't support ISO 15693 or 
+	 * addresses another tag
+	 * @throws TagIOException if the communication with the tag failed
+	 */
+	public void writeAFI(FedmIscTagHandler handler, int afi) throws TagException, 
+			TagIOException {
+		
+		// verify handler supports AFI commands
+		if (!(handler instanceof FedmIscTagHandler_ISO15693))
+			throw new TagException("tag handler doesn't support AFI");
+		
+		// verify handler addresses this tag
+		if (!getUID().equals(handler.getUid()))
+			throw new TagException("tag handler addresses another tag");
+		
+		// verify valid AFI range
+		if (afi < 0x00 || afi > 0xFF) 
+			throw new IllegalArgumentException("invalid AFI value: " + afi);
+		
+		// write the AFI
+		try {
+			if (((FedmIscTagHandler_ISO15693)handler).writeAFI((byte)afi) != 0)
+				throw new TagIOException("error writing tag AFI");
+		}
+		catch (FedmException | FePortDriverException | FeReaderDriverException e) {
+			throw new TagIOException("error writing tag AFI", e);
+		}
+		
+		this.afi = afi;
+	}
+	
 	/**
 	 * Checks if the tag supports the AFI.
 	 * 
@@ -191,6 +320,173 @@ public class ISO15693Tag extends BaseTag {
 		return blockSize;
 	}
 	
+	/**
+	 * Returns the blocks of the tag which differ between the supplied 
+	 * data and the last read tag data (payload). The supplied data is 
+	 * compared from the first block on.
+	 * 
+	 * @param payload the data to compare with the tag data
+	 * @return the set of differing block indices
+	 */
+	public BitSet getDirtyBlocks(byte[] payload) {
+		
+		BitSet dirty = new BitSet(memSize);
+		
+		for (int i = 0; i < payload.length; i++) {
+			
+			// skip bytes equal to the last read data
+			if (data != null && i < data.length && data[i] == payload[i]) continue;
+			
+			// mark block and continue with next block
+			int block = i / blockSize;
+			dirty.set(block);
+			i = (block + 1) * blockSize - 1;
+		}
+		return dirty;
+	}
+	
+	/**
+	 * Writes the supplied data-model to the tag.
+	 * 
+	 * @see #writeData(byte[])
+	 * @param model the data-model to write
+	 * @return the number of written blocks
+	 * @throws TagException if the tag data could't be written
+	 */
+	public int writeData(TagData model) throws TagException {
+		return writeData(model.getData());
+	}
+	
+	/**
+	 * Writes the supplied data to the tag starting at the first block.
+	 * Only blocks that differ from the last read tag data are written,
+	 * contiguous blocks are written with a single command. Every written
+	 * range is verified by reading it back from the tag. 
+	 * 
+	 * @param payload the data to write
+	 * @return the number of written blocks
+	 * @throws TagException if the tag doesn't support writing or the data
+	 * exceeds the tag memory
+	 * @throws TagIOException if the communication with the tag failed or 
+	 * the verification of the written data failed
+	 */
+	public int writeData(byte[] payload) throws TagException, TagIOException {
+		
+		// writing requires a tag handler
+		if (handler == null) throw new TagException("tag doesn't support writing");
+		
+		// verify data fits into tag memory
+		if (payload.length > memSize * blockSize) 
+			throw new TagException("data exceeds tag memory");
+		
+		// load blocks not read yet to compare with
+		getData(payload.length);
+		
+		BitSet dirty = getDirtyBlocks(payload);
+		if (dirty.isEmpty()) return 0;
+		
+		// merge supplied data into last read data
+		int size = Math.max(payload.length, dirty.length() * blockSize);
+		if (data != null) size = Math.max(size, data.length);
+		
+		byte[] merged = new byte[size];
+		if (data != null) System.arraycopy(data, 0, merged, 0, data.length);
+		System.arraycopy(payload, 0, merged, 0, payload.length);
+		
+		try {
+			int first = dirty.nextSetBit(0);
+			
+			// write ranges of contiguous dirty blocks
+			while (first >= 0) {
+				
+				int end = dirty.nextClearBit(first);
+				byte[] blocks = Arrays.copyOfRange(merged, first * blockSize, end * blockSize);
+				
+				// write blocks
+				if (handler.writeMultipleBlocks(first, end - first, blockSize, blocks) != 0)
+					throw new TagIOException("error writing tag user data");
+				
+				// verify by reading back
+				byte[] read = getPayload(handler, first, end - first, false).data;
+				if (read == null || !Arrays.equals(blocks, Arrays.copyOf(read, blocks.length)))
+					throw new TagIOException("error verifying written tag user data");
+				
+				first = dirty.nextSetBit(end);
+			}
+		}
+		catch (FedmException | FePortDriverException | FeReaderDriverException e) {
+			throw new TagIOException("error writing tag user data", e);
+		}
+		
+		// keep written data for later offline access
+		data = merged;
+		
+		return dirty.cardinality();
+	}
+	
+	@Override
+	protected void writeTo(DataOutput out) throws IOException {
+		
+		super.writeTo(out);
+		
+		out.writeShort(afi);
+		out.writeShort(blockSize);
+		out.writeShort(sysSize);
+		out.writeInt(memSize);
+		BinaryCodec.writeBytes(out, data);
+	}
+	
+	/**
+	 * Loads the tag data (payload) like loadBlocks(int), but fails if
+	 * the blocks are missing and the tag has no tag handler.
+	 * 
+	 * @param blockCount the number of blocks to load from the first block on
+	 * @throws TagException if the blocks can't be loaded without tag handler
+	 * @throws TagIOException if the communication with the tag failed
+	 */
+	private synchronized void requireBlocks(int blockCount) throws TagException, TagIOException {
+		
+		loadBlocks(blockCount);
+		
+		int size = Math.min(blockCount, memSize) * blockSize;
+		if (data == null ? size > 0 : data.length < size)
+			throw new TagException("tag data incomplete, no tag handler to load it");
+	}
+	
+	/**
+	 * Loads the tag data (payload) from the tag handler until the supplied 
+	 * number of blocks is available. Already loaded blocks are not read again.
+	 * 
+	 * @param blockCount the number of blocks to load from the first block on
+	 * @throws TagIOException if the communication with the tag failed
+	 */
+	private synchronized void loadBlocks(int blockCount) throws TagIOException {
+		
+		// limit to tag memory
+		if (blockCount > memSize) blockCount = memSize;
+		
+		int loaded = 0;
+		if (data != null) loaded = (blockSize > 0) ? data.length / blockSize : memSize;
+		
+		// skip if already loaded or no tag handler available
+		if (blockCount <= loaded || handler == null) return;
+		
+		byte[] re;
+		
+		// read missing blocks
+		try { re = getPayload(handler, loaded, blockCount - loaded, false).data; }
+		catch (FedmException | FePortDriverException | FeReaderDriverException e) {
+			throw new TagIOException("error reading tag user data", e);
+		}
+		
+		// append read blocks to loaded data
+		int off = loaded * blockSize;
+		int len = (blockSize > 0) ? Math.min(re.length, (blockCount - loaded) * blockSize) : re.length;
+		byte[] buf = (data != null) ? Arrays.copyOf(data, off + len) : new byte[len];
+		System.arraycopy(re, 0, buf, off, len);
+		data = buf;
+	}
+	
 	/**
 	 * Reads the tag data (payload) with the optional security status information
 	 * from the supplied handler.
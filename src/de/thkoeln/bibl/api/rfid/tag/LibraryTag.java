@@ -0,0 +1,185 @@
+package de.thkoeln.bibl.api.rfid.tag;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import de.feig.FePortDriverException;
+import de.feig.FeReaderDriverException;
+import de.feig.FedmBrmTableItem;
+import de.feig.FedmException;
+import de.feig.FedmIscReader;
+import de.feig.FedmIsoTableItem;
+import de.feig.TagHandler.FedmIscTagHandler_ISO15693;
+import de.thkoeln.bibl.api.rfid.tag.data.TagData;
+import de.thkoeln.bibl.api.rfid.tag.data.TagDataCache;
+import de.thkoeln.bibl.api.rfid.tag.data.TagDataFormat;
+import de.thkoeln.bibl.api.rfid.tag.data.TagDataRegistry;
+
+/**
+ * Class extends the ISO 15693 RFID tag with a data model detected from
+ * the tag data. The data model is decoded with the format found in the
+ * default TagDataRegistry, so a single reader can handle a collection
+ * with mixed data models. Decoded data models are cached in the default
+ * TagDataCache. The format is unknown before the data is read, so the
+ * whole tag data is read on initialization. Communication is based on
+ * the Feig IscTagHandler API.
+ * 
+ * Instances of this class support XML serializing by JAXB.
+ * 
+ * @see TagDataRegistry
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+@XmlRootElement(name="library-tag")
+@XmlAccessorType(XmlAccessType.NONE)
+public class LibraryTag extends ISO15693Tag {
+	
+	private static final long serialVersionUID = -4526915484011381906L;
+	
+	@XmlElement (name = "data-model", required = true)
+	private TagData model;
+	
+	/**
+	 * Default constructor for serialization.
+	 */
+	protected LibraryTag() {}
+	
+	/**
+	 * Initialize a new LibraryTag from the supplied binary representation.
+	 * The data model is detected and decoded from the tag data.
+	 * 
+	 * @param in the data input to read the tag from
+	 * @throws IOException if the tag could't be read
+	 */
+	protected LibraryTag(DataInput in) throws IOException {
+		
+		super(in);
+		
+		model = decodeModel();
+	}
+	
+	/**
+	 * Initialize a new LibraryTag with the supplied tag handler.
+	 * 
+	 * @param handler the handler of the tag
+	 * @throws TagIOException if the communication with the tag failed
+	 * @throws FedmException if the Feig handler throws an exception
+	 * @throws FePortDriverException if the communication with the RFID
+	 * device port failed
+	 * @throws FeReaderDriverException if the communication with the RFID
+	 * device driver failed
+	 */
+	public LibraryTag(FedmIscTagHandler_ISO15693 handler) throws TagIOException,
+			FedmException, FePortDriverException, FeReaderDriverException  {
+		
+		super(handler);
+		
+		model = decodeModel();
+	}
+	
+	/**
+	 * Initialize a new LibraryTag with the supplied tag reader and
+	 * BRM table tag.
+	 * 
+	 * @param reader the reader used for communication with the tag
+	 * @param tag the tag as BRM table item
+	 * @throws TagIOException if the communication with the tag failed
+	 * @throws FedmException if the Feig handler throws an exception
+	 * @throws FePortDriverException if the communication with the RFID
+	 * device port failed
+	 * @throws FeReaderDriverException if the communication with the RFID
+	 * device driver failed
+	 */
+	public LibraryTag(FedmIscReader reader, FedmBrmTableItem tag) throws TagIOException,
+			FedmException, FePortDriverException, FeReaderDriverException {
+		
+		super(reader, tag);
+		
+		model = decodeModel();
+	}
+	
+	/**
+	 * Initialize a new LibraryTag with the supplied tag reader and
+	 * ISO table tag.
+	 * 
+	 * @param reader the reader used for communication with the tag
+	 * @param tag the tag as ISO table item
+	 * @throws TagIOException if the communication with the tag failed
+	 * @throws FedmException if the Feig handler throws an exception
+	 * @throws FePortDriverException if the communication with the RFID
+	 * device port failed
+	 * @throws FeReaderDriverException if the communication with the RFID
+	 * device driver failed
+	 */
+	public LibraryTag(FedmIscReader reader, FedmIsoTableItem tag) throws TagIOException,
+			FedmException, FePortDriverException, FeReaderDriverException {
+		
+		super(reader, tag);
+		
+		model = decodeModel();
+	}
+	
+	/**
+	 * Returns the data model decoded from the tag data. The data model
+	 * is taken from the default TagDataCache if the tag data is unchanged.
+	 * 
+	 * @return the decoded data model
+	 */
+	private TagData decodeModel() {
+		return TagDataCache.getDefault().decode(getUID(), getData(), 
+				TagDataRegistry.getDefault());
+	}
+	
+	/**
+	 * Returns the data model of the tag. The type of the data model
+	 * depends on the detected format, tags with an unknown format
+	 * return the raw TagData.
+	 * 
+	 * @return the data model
+	 */
+	public TagData getDataModel() {
+		return model;
+	}
+	
+	/**
+	 * Checks if the data model of the tag was decoded with a known format.
+	 * 
+	 * @return true if the format of the data model is known
+	 */
+	public boolean hasKnownFormat() {
+		return getFormat() != null;
+	}
+	
+	/**
+	 * Returns the detected format of the tag data.
+	 * 
+	 * @return the format or null if the format is unknown
+	 */
+	public TagDataFormat getFormat() {
+		return TagDataRegistry.getDefault().getFormat(getData());
+	}
+	
+	/**
+	 * Writes the data model of the tag back to the tag. Modifications
+	 * of the data model must be done before with the setters of the
+	 * data model.
+	 * 
+	 * @see ISO15693Tag#writeData(byte[])
+	 * @return the number of written blocks
+	 * @throws TagException if the data model could't be written
+	 */
+	public int writeDataModel() throws TagException {
+		return writeData(model);
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%s (%s)", model, getUID());
+	}
+}
@@ -0,0 +1,109 @@
+package de.thkoeln.bibl.api.rfid.tag;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class describes which part of the tag memory is read when a tag is
+ * initialized with a tag handler. The profile defines the number of bytes
+ * read from the first block on, rounded up to full blocks. The remaining
+ * tag memory is loaded on demand.
+ * 
+ * Profiles are registered for a tag class and apply to all sub-classes
+ * without an own profile. Tag classes without a registered profile read
+ * the full tag memory.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class ReadProfile {
+	
+	/** Reads the full tag memory */
+	public static final ReadProfile FULL = new ReadProfile(Integer.MAX_VALUE);
+	
+	/** Reads the default DDM data (32 bytes) */
+	public static final ReadProfile DDM = new ReadProfile(32);
+	
+	/** Reads the DDM data with Bibliotheca's extended data (112 bytes) */
+	public static final ReadProfile DDM_BIBLIOTHECA = new ReadProfile(112);
+	
+	private static Map<Class<?>, ReadProfile> profiles = new ConcurrentHashMap<>();
+	
+	private int size;
+	
+	/**
+	 * Initialize a new ReadProfile with the supplied number of bytes
+	 * to read.
+	 * 
+	 * @param size the number of bytes to read from the first block on
+	 */
+	public ReadProfile(int size) {
+		
+		if (size < 0) throw new IllegalArgumentException("invalid size: " + size);
+		this.size = size;
+	}
+	
+	/**
+	 * Returns the number of bytes to read.
+	 * 
+	 * @return the number of bytes
+	 */
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * Returns the number of blocks to read for the supplied block size,
+	 * limited by the supplied memory size.
+	 * 
+	 * @param blockSize the block size in bytes
+	 * @param memSize the memory size in blocks
+	 * @return the number of blocks to read
+	 */
+	public int getBlockCount(int blockSize, int memSize) {
+		
+		// no valid block size, read full memory
+		if (blockSize < 1) return memSize;
+		
+		// round up to full blocks
+		long blocks = ((long)size + blockSize - 1) / blockSize;
+		return (int)Math.min(blocks, memSize);
+	}
+	
+	/**
+	 * Registers the profile for the supplied tag class. The profile
+	 * applies to all sub-classes without an own profile.
+	 * 
+	 * @param tagClass the tag class to register the profile for
+	 * @param profile the profile or null to remove the profile
+	 */
+	public static void setProfile(Class<? extends ISO15693Tag> tagClass,
+			ReadProfile profile) {
+		
+		if (profile == null) profiles.remove(tagClass);
+		else profiles.put(tagClass, profile);
+	}
+	
+	/**
+	 * Returns the profile for the supplied tag class. If no profile is
+	 * registered for the class, the profile of the nearest super-class is
+	 * returned or the FULL profile if no profile was found.
+	 * 
+	 * @param tagClass the tag class to get the profile for
+	 * @return the profile for the tag class
+	 */
+	public static ReadProfile getProfile(Class<?> tagClass) {
+		
+		// search class hierarchy for profile
+		for (Class<?> c = tagClass; c != null; c = c.getSuperclass()) {
+			ReadProfile profile = profiles.get(c);
+			if (profile != null) return profile;
+		}
+		return FULL;
+	}
+	
+	@Override
+	public String toString() {
+		return (this == FULL) ? "FULL" : Integer.toString(size);
+	}
+}
@@ -0,0 +1,74 @@
+package de.thkoeln.bibl.api.rfid.tag;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import de.thkoeln.bibl.api.io.BinaryCodec;
+
+/**
+ * Class implements the binary serializing of tags. The codec is an compact
+ * alternative to the XML serializing, e.g. to store or transfer a large
+ * number of tag events.
+ * 
+ * The record body contains the fields of the tag in a fixed layout:
+ * 
+ * BaseTag:			UID, name, RSSI count, RSSI (antenna, value) pairs
+ * ISO15693Tag:		AFI, block size, system size, memory size, payload
+ * BibliothecaTag:	no own fields, the data model is rebuilt from the payload
+ * LibraryTag:		no own fields, the data model is detected from the payload
+ * 
+ * Tags of unknown sub-classes are encoded with the nearest known
+ * super-class. The tag handler isn't serialized, so decoded tags can't
+ * communicate with the tag.
+ * 
+ * Instances of this class are thread safe.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class TagCodec extends BinaryCodec<BaseTag> {
+	
+	/** The current format version */
+	public static final int VERSION = 1;
+	
+	private static final int TYPE_BASE = 1;
+	private static final int TYPE_ISO15693 = 2;
+	private static final int TYPE_BIBLIOTHECA = 3;
+	private static final int TYPE_LIBRARY = 4;
+	
+	/**
+	 * Initialize a new TagCodec.
+	 */
+	public TagCodec() {
+		super(VERSION);
+	}
+	
+	@Override
+	protected int getType(BaseTag tag) {
+		
+		// use nearest known class
+		if (tag instanceof BibliothecaTag) return TYPE_BIBLIOTHECA;
+		if (tag instanceof LibraryTag) return TYPE_LIBRARY;
+		if (tag instanceof ISO15693Tag) return TYPE_ISO15693;
+		return TYPE_BASE;
+	}
+	
+	@Override
+	protected void encodeBody(BaseTag tag, DataOutput out) throws IOException {
+		tag.writeTo(out);
+	}
+	
+	@Override
+	protected BaseTag decodeBody(int type, int version, DataInput in)
+			throws IOException {
+		
+		switch (type) {
+			case TYPE_BASE: return new BaseTag(in);
+			case TYPE_ISO15693: return new ISO15693Tag(in);
+			case TYPE_BIBLIOTHECA: return new BibliothecaTag(in);
+			case TYPE_LIBRARY: return new LibraryTag(in);
+			default: throw new IOException("unsupported record type: " + type);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package de.thkoeln.bibl.api.rfid.tag;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.thkoeln.bibl.api.io.JSONLinesWriter;
+import de.thkoeln.bibl.api.io.JSONWriter;
+import de.thkoeln.bibl.api.rfid.tag.data.DDMData;
+import de.thkoeln.bibl.api.rfid.tag.data.DDMDataBibliotheca;
+import de.thkoeln.bibl.api.rfid.tag.data.ISO28560Data;
+import de.thkoeln.bibl.api.rfid.tag.data.TagData;
+
+/**
+ * Class implements the export of tags as JSON lines. The members are
+ * written depending on the tag class:
+ * 
+ * BaseTag:			uid, type, rssi
+ * ISO15693Tag:		afi, block-size, sys-size, mem-size, payload (hex)
+ * BibliothecaTag:	model (DDM data model)
+ * LibraryTag:		model (detected data model, raw data for unknown formats)
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class TagJSONWriter extends JSONLinesWriter<BaseTag> {
+	
+	/**
+	 * Initialize a new TagJSONWriter with the supplied writer.
+	 * 
+	 * @param out the writer to write the JSON lines to
+	 */
+	public TagJSONWriter(Writer out) {
+		super(out);
+	}
+	
+	/**
+	 * Initialize a new TagJSONWriter writing UTF-8 encoded JSON lines to
+	 * the supplied output stream.
+	 * 
+	 * @param out the output stream to write the JSON lines to
+	 */
+	public TagJSONWriter(OutputStream out) {
+		super(out);
+	}
+	
+	@Override
+	protected void writeMembers(JSONWriter json, BaseTag tag) {
+		
+		json.name("uid").value(tag.getUID());
+		json.name("type").value(tag.getName());
+		
+		// write RSSI of all antennas
+		Map<Integer, Integer> rssi = tag.getRSSI();
+		json.name("rssi");
+		
+		if (rssi == null) json.nullValue();
+		else {
+			json.beginArray();
+			for (Entry<Integer, Integer> elm : rssi.entrySet()) {
+				json.beginObject();
+				json.name("antenna").value(elm.getKey());
+				json.name("value").value(elm.getValue());
+				json.endObject();
+			}
+			json.endArray();
+		}
+		
+		if (!(tag instanceof ISO15693Tag)) return;
+		
+		ISO15693Tag iso = (ISO15693Tag)tag;
+		
+		json.name("afi").value(iso.getAFI());
+		json.name("block-size").value(iso.getBlockSize());
+		json.name("sys-size").value(iso.getSysSize());
+		json.name("mem-size").value(iso.getMemSize());
+		json.name("payload").value(iso.getData());
+		
+		if (tag instanceof BibliothecaTag) {
+			json.name("model");
+			writeModel(json, ((BibliothecaTag)tag).getDataModel());
+		}
+		else if (tag instanceof LibraryTag) {
+			json.name("model");
+			writeModel(json, ((LibraryTag)tag).getDataModel());
+		}
+	}
+	
+	/**
+	 * Writes the supplied data model as JSON object. DDM and ISO 28560-2
+	 * data models are written with their fields, other data models with
+	 * the raw data.
+	 * 
+	 * @param json the JSON writer to write the model to
+	 * @param data the data model to write
+	 */
+	private void writeModel(JSONWriter json, TagData data) {
+		
+		if (data == null) {
+			json.nullValue();
+			return;
+		}
+		
+		json.beginObject();
+		json.name("model").value(data.getModel());
+		
+		if (data instanceof ISO28560Data) {
+			ISO28560Data iso = (ISO28560Data)data;
+			json.name("signature").value(iso.getSignature());
+			json.name("parts").value(iso.getParts());
+			json.name("part-nr").value(iso.getPartNr());
+			json.name("lib-id").value(iso.getLibID());
+			json.name("type-of-usage").value(iso.getTypeOfUsage());
+			json.name("valid").value(iso.isValid());
+			json.endObject();
+			return;
+		}
+		if (!(data instanceof DDMData)) {
+			json.name("data").value(data.getData());
+			json.endObject();
+			return;
+		}
+		
+		DDMData model = (DDMData)data;
+		
+		if (model instanceof DDMDataBibliotheca)
+			json.name("type").value(((DDMDataBibliotheca)model).getType());
+		
+		json.name("version").value(model.getVersion());
+		json.name("status").value(model.getStatus());
+		json.name("parts").value(model.getParts());
+		json.name("part-nr").value(model.getPartNr());
+		json.name("signature").value(model.getSignature());
+		json.name("nation").value(model.getNation());
+		json.name("lib-id").value(model.getLibID());
+		json.name("valid").value(model.isValid());
+		json.endObject();
+	}
+}
@@ -0,0 +1,322 @@
+package de.thkoeln.bibl.api.rfid.tag;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.thkoeln.bibl.api.rfid.tag.data.TagData;
+import de.thkoeln.bibl.api.rfid.tag.data.TagDataCache;
+import de.thkoeln.bibl.api.rfid.tag.data.TagDataRegistry;
+
+/**
+ * Class implements an immutable snapshot of a tag. The snapshot holds
+ * the UID, the tag type name, the RSSI, the AFI and the tag data at the
+ * time the snapshot was taken, but no tag handler, so it doesn't keep
+ * any reference to the reader.
+ * 
+ * Tag type names are interned, so all snapshots of the same tag type
+ * share a single name instance. The RSSI is held in compact arrays.
+ * 
+ * Instances of this class are immutable and can be shared between
+ * threads without synchronization.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public final class TagSnapshot implements Serializable, Comparable<TagSnapshot> {
+	
+	private static final long serialVersionUID = -2604766101563322871L;
+	
+	private static final byte[] NO_DATA = new byte[0];
+	private static final int[] NO_RSSI = new int[0];
+	
+	private static final ConcurrentMap<String, String> names = new ConcurrentHashMap<>();
+	
+	private final String uid;
+	private final String name;
+	private final long time;
+	private final int afi;
+	private final int[] antennas;
+	private final int[] rssi;
+	private final byte[] data;
+	
+	/**
+	 * Initialize a new TagSnapshot of the supplied tag.
+	 * 
+	 * @param tag the tag to take the snapshot of
+	 */
+	TagSnapshot(BaseTag tag) {
+		
+		uid = tag.getUID();
+		name = intern(tag.getName());
+		time = System.currentTimeMillis();
+		
+		// copy RSSI ordered by antenna
+		Map<Integer, Integer> map = tag.getRSSI();
+		
+		if (map == null || map.isEmpty()) {
+			antennas = NO_RSSI;
+			rssi = NO_RSSI;
+		}
+		else {
+			antennas = new int[map.size()];
+			rssi = new int[map.size()];
+			
+			int i = 0;
+			for (int ant : map.keySet()) antennas[i++] = ant;
+			Arrays.sort(antennas);
+			for (i = 0; i < antennas.length; i++) rssi[i] = map.get(antennas[i]);
+		}
+		
+		// copy ISO 15693 specific data
+		if (tag instanceof ISO15693Tag) {
+			ISO15693Tag iso = (ISO15693Tag)tag;
+			byte[] payload = iso.getData();
+			afi = iso.getAFI();
+			data = (payload != null) ? payload.clone() : NO_DATA;
+		}
+		else {
+			afi = ISO15693Tag.AFI_NA;
+			data = NO_DATA;
+		}
+	}
+	
+	/**
+	 * Returns the UID of the tag.
+	 * 
+	 * @return the UID
+	 */
+	public String getUID() {
+		return uid;
+	}
+	
+	/**
+	 * Returns the tag name (type), defined in the Feig API.
+	 * 
+	 * @return the tag name
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Returns the time the snapshot was taken.
+	 * 
+	 * @return the time in milliseconds since epoch
+	 */
+	public long getTime() {
+		return time;
+	}
+	
+	/**
+	 * Returns the AFI of the tag.
+	 * 
+	 * @return the AFI or ISO15693Tag.AFI_NA if the tag has no AFI
+	 */
+	public int getAFI() {
+		return afi;
+	}
+	
+	/**
+	 * Returns the RSSI (signal strength indicator) for this tag
+	 * from all antennas, indexed by the antenna.
+	 * 
+	 * @return an unmodifiable map with the RSSI from all antennas or null
+	 * if no RSSI is available
+	 */
+	public Map<Integer, Integer> getRSSI() {
+		
+		if (!hasRSSI()) return null;
+		
+		Map<Integer, Integer> map = new LinkedHashMap<>(antennas.length * 2);
+		for (int i = 0; i < antennas.length; i++) map.put(antennas[i], rssi[i]);
+		return Collections.unmodifiableMap(map);
+	}
+	
+	/**
+	 * Returns the RSSI (signal strength indicator) for this tag
+	 * from a specific antenna.
+	 * 
+	 * @param antenna the antenna index
+	 * @return the measured RSSI or a negative value if no RSSI is
+	 * available
+	 */
+	public int getRSSI(int antenna) {
+		int idx = Arrays.binarySearch(antennas, antenna);
+		return (idx >= 0) ? rssi[idx] : -1;
+	}
+	
+	/**
+	 * Returns the maximum RSSI (signal strength indicator) for this
+	 * tag over all available antennas.
+	 * 
+	 * @return the maximum RSSI or a negative value if no RSSI is
+	 * available
+	 */
+	public int getMaxRSSI() {
+		
+		int max = -1;
+		for (int val : rssi) if (val > max) max = val;
+		return max;
+	}
+	
+	/**
+	 * Checks if this snapshot has RSSI (signal strength indicator)
+	 * information.
+	 * 
+	 * @return true if the snapshot has RSSI information
+	 */
+	public boolean hasRSSI() {
+		return rssi.length > 0;
+	}
+	
+	/**
+	 * Returns a copy of the tag data (payload).
+	 * 
+	 * @return the tag data, an empty array if the tag has no data
+	 */
+	public byte[] getData() {
+		return data.clone();
+	}
+	
+	/**
+	 * Returns the length of the tag data (payload) in bytes.
+	 * 
+	 * @return the length of the tag data
+	 */
+	public int getDataLength() {
+		return data.length;
+	}
+	
+	/**
+	 * Returns the tag data (payload) as unsigned byte at a specific index.
+	 * 
+	 * @param idx the index to get the data from
+	 * @return the data byte
+	 */
+	public int getData(int idx) {
+		return data[idx] & 0xFF;
+	}
+	
+	/**
+	 * Returns the hash of the tag data (payload).
+	 * 
+	 * @see #getDataHash(byte[])
+	 * @return the hash of the tag data
+	 */
+	public int getDataHash() {
+		return getDataHash(data);
+	}
+	
+	/**
+	 * Returns the hash of the supplied tag data (payload). Missing and
+	 * empty data both have the hash 0, so the hash of a tag doesn't
+	 * depend on whether it's taken from the tag or a snapshot.
+	 * 
+	 * @param data the tag data or null
+	 * @return the hash of the tag data
+	 */
+	public static int getDataHash(byte[] data) {
+		return (data == null || data.length == 0) ? 0 : Arrays.hashCode(data);
+	}
+	
+	/**
+	 * Decodes the data model of the tag data with the default
+	 * TagDataRegistry. Every call returns a new data model, decoded
+	 * models are cached in the default TagDataCache.
+	 * 
+	 * @return the decoded data model
+	 */
+	public TagData decodeDataModel() {
+		return TagDataCache.getDefault().decode(uid, data, TagDataRegistry.getDefault());
+	}
+	
+	@Override
+	public int hashCode() {
+		return uid.hashCode();
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		
+		if (this == obj) return true;
+		if (!(obj instanceof TagSnapshot)) return false;
+		
+		TagSnapshot o = (TagSnapshot)obj;
+		return uid.equals(o.uid) && time == o.time && afi == o.afi &&
+				Arrays.equals(data, o.data);
+	}
+	
+	/**
+	 * Compares the snapshot by it's UID. Snapshots of the same tag are
+	 * ordered by their time, AFI and tag data, so the order is consistent
+	 * with equals.
+	 * 
+	 * @param obj the snapshot to compare with
+	 */
+	@Override
+	public int compareTo(TagSnapshot obj) {
+		
+		int cmp = uid.compareTo(obj.uid);
+		if (cmp == 0) cmp = Long.compare(time, obj.time);
+		if (cmp == 0) cmp = Integer.compare(afi, obj.afi);
+		if (cmp != 0) return cmp;
+		
+		// compare data as unsigned bytes, shorter data first
+		int len = Math.min(data.length, obj.data.length);
+		
+		for (int i = 0; i < len; i++) {
+			cmp = Integer.compare(data[i] & 0xFF, obj.data[i] & 0xFF);
+			if (cmp != 0) return cmp;
+		}
+		return Integer.compare(data.length, obj.data.length);
+	}
+	
+	@Override
+	public String toString() {
+		return uid;
+	}
+	
+	/**
+	 * Returns the shared instance of the supplied tag name.
+	 * 
+	 * @param name the tag name
+	 * @return the shared tag name
+	 */
+	private static String intern(String name) {
+		
+		if (name == null) return null;
+		
+		String re = names.putIfAbsent(name, name);
+		return (re != null) ? re : name;
+	}
+	
+	/**
+	 * Replaces the deserialized tag name by the shared instance.
+	 * 
+	 * @return the snapshot with the shared tag name
+	 */
+	private Object readResolve() {
+		return (name == intern(name)) ? this : new TagSnapshot(this);
+	}
+	
+	/**
+	 * Initialize a new TagSnapshot as copy of the supplied snapshot with
+	 * the shared tag name.
+	 * 
+	 * @param s the snapshot to copy
+	 */
+	private TagSnapshot(TagSnapshot s) {
+		uid = s.uid;
+		name = intern(s.name);
+		time = s.time;
+		afi = s.afi;
+		antennas = s.antennas;
+		rssi = s.rssi;
+		data = s.data;
+	}
+}
@@ -30,6 +30,17 @@ public class CRC16 implements Checksum {
 		update(data, 0, data.length);
 	}
 	
+	/**
+	 * Initialize a new CRC16 with the current checksum of the
+	 * supplied CRC16.
+	 * 
+	 * @param crc the CRC16 to copy the checksum from
+	 */
+	public CRC16(CRC16 crc) {
+		this.crc = crc.crc;
+		this.poly = crc.poly;
+	}
+	
 	@Override
 	public long getValue() {
 		return crc;
@@ -41,7 +41,7 @@ public class DDMData extends TagData implements Comparable<DDMData> {
 	private static final int DDM_PARTS_IDX = 1;
 	private static final int DDM_PARTNR_IDX = 2;
 	private static final int DDM_SIGNATURE_IDX = 3;
-	private static final int DDM_SIGNATURE_LEN = 16;
+	protected static final int DDM_SIGNATURE_LEN = 16;
 	private static final int DDM_CRC_IDX = 19;
 	private static final int DDM_CRC_LEN = 2;
 	private static final int DDM_NATION_IDX = 21;
@@ -219,12 +219,130 @@ public class DDMData extends TagData implements Comparable<DDMData> {
 		return (getData(DDM_CRC_IDX + 1) << 8) | (getData(DDM_CRC_IDX));
 	}
 	
+	/**
+	 * Sets the version number.
+	 * 
+	 * @param version the version number (4 bits)
+	 */
+	public void setVersion(int version) {
+		setData(DDM_STATUS_IDX, (getData(DDM_STATUS_IDX) & 0x0F) | 
+				((version & 0x0F) << 4));
+		encodeChecksum();
+	}
+	
+	/**
+	 * Sets the status.
+	 * 
+	 * @param status the status (4 bits)
+	 */
+	public void setStatus(int status) {
+		setData(DDM_STATUS_IDX, (getData(DDM_STATUS_IDX) & 0xF0) | 
+				(status & 0x0F));
+		encodeChecksum();
+	}
+	
+	/**
+	 * Sets the number of parts.
+	 * 
+	 * @param parts the number of parts
+	 */
+	public void setParts(int parts) {
+		setData(DDM_PARTS_IDX, parts);
+		encodeChecksum();
+	}
+	
+	/**
+	 * Sets the part number. A part number of one is encoded as 
+	 * zero, if the media has only a single part.
+	 * 
+	 * @param partNr the part number
+	 */
+	public void setPartNr(int partNr) {
+		setData(DDM_PARTNR_IDX, (partNr == 1 && getParts() <= 1) ? 0 : partNr);
+		encodeChecksum();
+	}
+	
+	/**
+	 * Sets the signature.
+	 * 
+	 * @param signature the signature
+	 * @throws IllegalArgumentException if the signature exceeds
+	 * the signature length of the data-model
+	 */
+	public void setSignature(String signature) throws IllegalArgumentException {
+		setDataRange(DDM_SIGNATURE_IDX, DDM_SIGNATURE_LEN, signature);
+		encodeChecksum();
+	}
+	
+	/**
+	 * Sets the nation.
+	 * 
+	 * @param nation the ISO nation code
+	 * @throws IllegalArgumentException if the nation exceeds 2 bytes
+	 */
+	public void setNation(String nation) throws IllegalArgumentException {
+		setDataRange(DDM_NATION_IDX, DDM_NATION_LEN, nation);
+		encodeChecksum();
+	}
+	
+	/**
+	 * Sets the ISIL (International Standard Identifier for Libraries
+	 * and Related Organizations).
+	 * 
+	 * @param libID the ISIL
+	 * @throws IllegalArgumentException if the ISIL exceeds 9 bytes
+	 */
+	public void setLibID(String libID) throws IllegalArgumentException {
+		setDataRange(DDM_BIBID_IDX, DDM_BIBID_LEN, libID);
+		encodeChecksum();
+	}
+	
 	@Override
 	public void setData(byte[] data) {
 		setData(data, DDM_SIZE);
 		updateChecksum();
 	}
 	
+	/**
+	 * Checks if the supplied data contains valid DDM-data, validated
+	 * with the checksum without creating a data-model.
+	 * 
+	 * @param data the data to check
+	 * @return true if the data is valid
+	 */
+	public static boolean isValid(byte[] data) {
+		
+		if (data == null || data.length < DDM_SIZE) return false;
+		
+		CRC16 crc = new CRC16();
+		for (int i=0; i < DDM_SIZE; i++) {
+			// skip CRC bytes
+			if (i >= DDM_CRC_IDX && i <= (DDM_CRC_IDX + DDM_CRC_LEN - 1)) continue;
+			crc.update(data[i]);
+		}
+		for (int i=0; i < DDM_CRC_LEN; i++) {
+			crc.update(0x00);
+		}
+		
+		 // LSB first
+		int value = ((data[DDM_CRC_IDX + 1] & 0xFF) << 8) | (data[DDM_CRC_IDX] & 0xFF);
+		return crc.getValue() == value;
+	}
+	
+	/**
+	 * Updates the CRC-16 checksum of the DDM-data and writes it to 
+	 * the data-model. After encoding the data-model is valid and can 
+	 * be written to a tag.
+	 */
+	protected void encodeChecksum() {
+		updateChecksum();
+		
+		 // LSB first
+		int val = (int)crc.getValue();
+		setData(DDM_CRC_IDX, val & 0xFF);
+		setData(DDM_CRC_IDX + 1, (val >> 8) & 0xFF);
+	}
+	
 	/**
 	 * Updates the CRC-16 checksum of the DDM-data.
 	 */
@@ -241,6 +359,14 @@ public class DDMData extends TagData implements Comparable<DDMData> {
 		}
 	}
 
+	@Override
+	public DDMData copy() {
+		
+		DDMData re = (DDMData)super.copy();
+		re.crc = new CRC16(crc);
+		return re;
+	}
+	
 	/**
 	 * Compares the DDM-data by the signature and part number.
 	 * 
@@ -1,5 +1,7 @@
 package de.thkoeln.bibl.api.rfid.tag.data;
 
+import java.util.Arrays;
+
 import javax.xml.bind.DatatypeConverter;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -94,6 +96,16 @@ public class DDMDataBibliotheca extends DDMData {
 		return getData(DDM_EXT_MEDIATYPE_IDX);
 	}
 	
+	/**
+	 * Sets the type.
+	 * 
+	 * @param type the type
+	 */
+	public void setType(int type) {
+		setData(DDM_EXT_MEDIATYPE_IDX, type);
+		encodeChecksum();
+	}
+	
 	@Override
 	public int getVersion() {
 		// version and status byte are swapped
@@ -106,6 +118,18 @@ public class DDMDataBibliotheca extends DDMData {
 		return super.getVersion();
 	}
 
+	@Override
+	public void setVersion(int version) {
+		// version and status byte are swapped
+		super.setStatus(version);
+	}
+	
+	@Override
+	public void setStatus(int status) {
+		// version and status byte are swapped
+		super.setVersion(status);
+	}
+
 	@Override
 	public String getSignature() {
 		// get signature from default DDM location 
@@ -118,6 +142,38 @@ public class DDMDataBibliotheca extends DDMData {
 		return getDataRange(DDM_EXT_SIGNATURE_IDX, getSigLength());
 	}
 	
+	/**
+	 * Sets the signature. Signatures fitting into the default DDM 
+	 * location are stored there, longer signatures are stored in the 
+	 * extended data and the default location is cleared. The optional
+	 * validation code is moved behind the new signature.
+	 * 
+	 * @param signature the signature
+	 * @throws IllegalArgumentException if the signature exceeds
+	 * the extended signature length
+	 */
+	@Override
+	public void setSignature(String signature) throws IllegalArgumentException {
+		
+		byte[] sig = signature.trim().getBytes();
+		int oldLen = getSigLength();
+		
+		// signature fits into default DDM location
+		if (sig.length <= DDM_SIGNATURE_LEN) {
+			super.setSignature(signature);
+			// clear previously used extended signature
+			if (oldLen > 0) setExtSignature(new byte[0], oldLen);
+		}
+		// store signature in extended data
+		else {
+			if (sig.length > DDM_EXT_SIGNATURE_LEN) throw new IllegalArgumentException(
+					String.format("value exceeds %d bytes: '%s'", DDM_EXT_SIGNATURE_LEN, signature));
+			super.setSignature("");
+			setExtSignature(sig, oldLen);
+		}
+		encodeChecksum();
+	}
+	
 	@Override
 	public boolean isValid() {		
 		return (super.isValid() && 
@@ -139,6 +195,21 @@ public class DDMDataBibliotheca extends DDMData {
 		updateChecksum();
 	}
 	
+	@Override
+	public DDMDataBibliotheca copy() {
+		return (DDMDataBibliotheca)super.copy();
+	}
+	
+	/**
+	 * Updates the CRC-16 checksum and the extended XOR checksum and
+	 * writes both to the data-model.
+	 */
+	@Override
+	protected void encodeChecksum() {
+		super.encodeChecksum();
+		setData(DDM_EXT_CHECKSUM_IDX, checksum);
+	}
+	
 	/**
 	 * Updates the CRC-16 checksum of the DDM-data and the
 	 * extended XOR checksum in the Bibliotheca data-model.
@@ -157,7 +228,7 @@ public class DDMDataBibliotheca extends DDMData {
 		for (int i = startIdx; i < endIdx; i++) {
 			// skip checksum byte
 			if (i == DDM_EXT_CHECKSUM_IDX) continue;
-			checksum ^= data[i];
+			checksum ^= data[i] & 0xFF;
 		}
 	}
 	
@@ -177,6 +248,32 @@ public class DDMDataBibliotheca extends DDMData {
 		return len; 
 	}
 	
+	/**
+	 * Writes the signature to the extended data and updates the data
+	 * length. The validation code following the previous signature is
+	 * kept and moved behind the new signature.
+	 * 
+	 * @param sig the encoded signature
+	 * @param oldLen the length of the previous signature
+	 */
+	private void setExtSignature(byte[] sig, int oldLen) {
+		
+		// keep validation code of previous signature
+		int oldValIdx = DDM_EXT_SIGNATURE_IDX + oldLen;
+		byte[] valid = Arrays.copyOfRange(data, oldValIdx, oldValIdx + DDM_EXT_VALID_LEN);
+		
+		// clear signature and validation code area
+		Arrays.fill(data, DDM_EXT_SIGNATURE_IDX, DDM_EXT_SIZE, (byte)0x00);
+		
+		// write signature followed by validation code
+		System.arraycopy(sig, 0, data, DDM_EXT_SIGNATURE_IDX, sig.length);
+		System.arraycopy(valid, 0, data, DDM_EXT_SIGNATURE_IDX + sig.length, 
+				Math.min(DDM_EXT_VALID_LEN, DDM_EXT_SIZE - DDM_EXT_SIGNATURE_IDX - sig.length));
+		
+		// update data length
+		setData(DDM_EXT_LEN_IDX, sig.length + DDM_EXT_MEDIATYPE_LEN + DDM_EXT_VALID_LEN);
+	}
+	
 	/**
 	 * Returns the extended XOR checksum.
 	 * 
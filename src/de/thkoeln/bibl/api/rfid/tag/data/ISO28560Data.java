@@ -0,0 +1,701 @@
+package de.thkoeln.bibl.api.rfid.tag.data;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Class extends the basic tag data with the ISO 28560-2 data model, which
+ * encodes a variable list of compacted data elements identified by
+ * relative object identifiers (OID).
+ * 
+ * Instances of this class implicitly support XML serializing by JAXB.
+ * 
+ * The data layout of a data element:
+ * 
+ * PP [OO] [AA] LL DD..DD [00..00]
+ * 
+ * P = precursor							1 byte
+ * 		offset flag							1 bit
+ * 		compaction scheme					3 bits
+ * 		relative OID (15 = extended)		4 bits
+ * O = relative OID - 15, if extended		1 byte
+ * A = number of padding bytes, if offset	1 byte
+ * L = length of the compacted data			1 byte
+ * D = compacted data						L bytes
+ * 0 = padding bytes						A bytes
+ * 
+ * The first data element must be the primary item identifier, the list of
+ * data elements is terminated by a zero precursor or the end of the data.
+ * 
+ * The data elements are indexed on first access and decoded lazily when
+ * read, so reading a single element doesn't decode the other elements.
+ * Modifications re-encode the complete list of data elements, elements
+ * not held by the index, like OIDs above MAX_OID or repeated OIDs, are
+ * copied unchanged.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+@XmlRootElement(name="iso28560-data")
+@XmlAccessorType(XmlAccessType.NONE)
+public class ISO28560Data extends TagData {
+	
+	private static final long serialVersionUID = 3915707302251745627L;
+	
+	/** Primary item identifier (media ID / signature) */
+	public static final int OID_PRIMARY_ITEM_ID = 1;
+	/** Content parameter */
+	public static final int OID_CONTENT_PARAMETER = 2;
+	/** Owner institution (ISIL) */
+	public static final int OID_OWNER_INSTITUTION = 3;
+	/** Set information, part number and total number of parts */
+	public static final int OID_SET_INFO = 4;
+	/** Type of usage */
+	public static final int OID_TYPE_OF_USAGE = 5;
+	/** Shelf location */
+	public static final int OID_SHELF_LOCATION = 6;
+	/** Title */
+	public static final int OID_TITLE = 17;
+	
+	/** Highest relative OID held in the element index */
+	public static final int MAX_OID = 63;
+	
+	public static final int COMPACT_APPLICATION = 0;
+	public static final int COMPACT_INTEGER = 1;
+	public static final int COMPACT_NUMERIC = 2;
+	public static final int COMPACT_5BIT = 3;
+	public static final int COMPACT_6BIT = 4;
+	public static final int COMPACT_7BIT = 5;
+	public static final int COMPACT_OCTET = 6;
+	public static final int COMPACT_UTF8 = 7;
+	
+	private static final Charset OCTET = Charset.forName("ISO-8859-1");
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	// element index: offset, length and compaction of each OID
+	private transient int[] index;
+	private transient String[] values;
+	
+	/**
+	 * Default constructor for serialization.
+	 */
+	protected ISO28560Data() {}
+	
+	/**
+	 * Initialize new ISO28560Data with the specified data array.
+	 * 
+	 * @param data the data to initialize the data-model with
+	 */
+	public ISO28560Data(byte[] data) {
+		super(data, data.length, "ISO 28560-2");
+	}
+	
+	/**
+	 * Initialize new ISO28560Data with the tag-data from the
+	 * supplied TagData.
+	 * 
+	 * @param data the TagData holding the data for this
+	 * data-model
+	 */
+	public ISO28560Data(TagData data) {
+		this(data.getData());
+	}
+	
+	/**
+	 * Initialize new ISO28560Data with an empty data-model of the
+	 * supplied size.
+	 * 
+	 * @param size the size of the data-model in bytes
+	 */
+	public ISO28560Data(int size) {
+		this(new byte[size]);
+	}
+	
+	@Override
+	public void setData(byte[] data, int size) {
+		super.setData(data, size);
+		
+		// reset element index
+		index = null;
+		values = null;
+	}
+	
+	/**
+	 * Return the primary item identifier.
+	 * 
+	 * @return the primary item identifier
+	 */
+	@XmlElement (name = "signature", required = true)
+	public String getSignature() {
+		return getString(OID_PRIMARY_ITEM_ID);
+	}
+	
+	/**
+	 * Return the nation, the country prefix of the ISIL.
+	 * 
+	 * @return the nation
+	 */
+	@XmlElement (name = "nation", required = true)
+	public String getNation() {
+		
+		String isil = getLibID();
+		int idx = isil.indexOf('-');
+		return (idx > 0) ? isil.substring(0, idx) : "";
+	}
+	
+	/**
+	 * Return the ISIL (International Standard Identifier
+	 * for Libraries and Related Organizations) of the owner
+	 * institution.
+	 * 
+	 * @return the ISIL
+	 */
+	@XmlElement (name = "isil", required = true)
+	public String getLibID() {
+		return getString(OID_OWNER_INSTITUTION);
+	}
+	
+	/**
+	 * Return the number of parts from the set information.
+	 * 
+	 * @return the number of parts
+	 */
+	@XmlElement (name = "parts", required = true)
+	public int getParts() {
+		return getSetInfo(false);
+	}
+	
+	/**
+	 * Return the part number from the set information.
+	 * 
+	 * @return the part number
+	 */
+	@XmlElement (name = "part", required = true)
+	public int getPartNr() {
+		return getSetInfo(true);
+	}
+	
+	/**
+	 * Return the type of usage.
+	 * 
+	 * @return the type of usage or null if not available
+	 */
+	@XmlElement (name = "type-of-usage", required = false)
+	public String getTypeOfUsage() {
+		return getElement(OID_TYPE_OF_USAGE);
+	}
+	
+	/**
+	 * Checks if the data is a valid ISO 28560-2 data-model. The
+	 * data-model is valid if the first data element is the primary
+	 * item identifier.
+	 * 
+	 * @return true if the data is valid
+	 */
+	@XmlElement (name = "valid", required = true)
+	public boolean isValid() {
+		return isValid(data);
+	}
+	
+	/**
+	 * Checks if the data element with the supplied OID is available.
+	 * 
+	 * @param oid the relative OID of the data element
+	 * @return true if the data element is available
+	 */
+	public boolean hasElement(int oid) {
+		return oid > 0 && oid <= MAX_OID && getIndex()[oid * 3 + 1] >= 0;
+	}
+	
+	/**
+	 * Returns the decoded value of the data element with the supplied OID.
+	 * 
+	 * @param oid the relative OID of the data element
+	 * @return the decoded value or null if the data element is not available
+	 */
+	public String getElement(int oid) {
+		
+		if (!hasElement(oid)) return null;
+		
+		// decode on first access
+		if (values[oid] == null) {
+			int[] idx = getIndex();
+			values[oid] = decode(data, idx[oid * 3], idx[oid * 3 + 1], idx[oid * 3 + 2]);
+		}
+		return values[oid];
+	}
+	
+	/**
+	 * Sets the data element with the supplied OID to the supplied value. The
+	 * compaction scheme is chosen by the value, the other data elements are
+	 * copied unchanged. The data-model is enlarged if the encoded data
+	 * elements exceed the data-model size.
+	 * 
+	 * @param oid the relative OID of the data element
+	 * @param value the value to set or null to remove the data element
+	 */
+	public void setElement(int oid, String value) {
+		
+		if (oid < 1 || oid > MAX_OID)
+			throw new IllegalArgumentException("invalid OID: " + oid);
+		
+		encode(oid, (value != null) ? value.trim() : null);
+	}
+	
+	/**
+	 * Sets the primary item identifier.
+	 * 
+	 * @param signature the primary item identifier
+	 */
+	public void setSignature(String signature) {
+		setElement(OID_PRIMARY_ITEM_ID, signature);
+	}
+	
+	/**
+	 * Sets the ISIL of the owner institution.
+	 * 
+	 * @param libID the ISIL
+	 */
+	public void setLibID(String libID) {
+		setElement(OID_OWNER_INSTITUTION, libID);
+	}
+	
+	/**
+	 * Sets the set information with the supplied part number and
+	 * number of parts.
+	 * 
+	 * @param partNr the part number
+	 * @param parts the number of parts
+	 */
+	public void setSetInfo(int partNr, int parts) {
+		
+		if (partNr < 1 || parts < partNr) throw new IllegalArgumentException(
+				String.format("invalid set information: %d/%d", partNr, parts));
+		
+		// part number and number of parts with the same number of digits
+		int digits = Math.max(2, Integer.toString(parts).length());
+		String fmt = "%0" + digits + "d";
+		setElement(OID_SET_INFO, String.format(fmt + fmt, partNr, parts));
+	}
+	
+	@Override
+	public ISO28560Data copy() {
+		// element index is shared until the data of a copy is modified
+		return (ISO28560Data)super.copy();
+	}
+	
+	@Override
+	public String toString() {
+		return getSignature();
+	}
+	
+	/**
+	 * Checks if the supplied data is a valid ISO 28560-2 data-model. The
+	 * check doesn't decode the data elements and doesn't throw an exception.
+	 * 
+	 * @param data the data to check
+	 * @return true if the first data element is a complete primary item
+	 * identifier
+	 */
+	public static boolean isValid(byte[] data) {
+		
+		if (data == null || data.length < 3) return false;
+		
+		int pre = data[0] & 0xFF;
+		
+		// first element must be the primary item identifier
+		if ((pre & 0x0F) != OID_PRIMARY_ITEM_ID) return false;
+		
+		// compaction scheme must be defined
+		int compaction = (pre >> 4) & 0x07;
+		if (compaction == COMPACT_APPLICATION) return false;
+		
+		// element must be complete
+		int pos = ((pre & 0x80) != 0) ? 2 : 1;
+		if (pos >= data.length) return false;
+		
+		int pad = (pos == 2) ? data[1] & 0xFF : 0;
+		int len = data[pos] & 0xFF;
+		return len > 0 && pos + 1 + len + pad <= data.length;
+	}
+	
+	/**
+	 * Returns the decoded value of the data element with the supplied OID
+	 * or an empty String if the element is not available.
+	 * 
+	 * @param oid the relative OID of the data element
+	 * @return the decoded value
+	 */
+	private String getString(int oid) {
+		String value = getElement(oid);
+		return (value != null) ? value : "";
+	}
+	
+	/**
+	 * Returns the part number or the number of parts from the set
+	 * information. The set information holds the part number in the first
+	 * half and the number of parts in the second half of the digits.
+	 * 
+	 * @param partNr true to get the part number, false to get the number
+	 * of parts
+	 * @return the requested value or 1 if no valid set information is
+	 * available
+	 */
+	private int getSetInfo(boolean partNr) {
+		
+		String info = getElement(OID_SET_INFO);
+		if (info == null || info.length() < 2 || info.length() % 2 != 0) return 1;
+		
+		int half = info.length() / 2;
+		int value = 0;
+		
+		for (int i = partNr ? 0 : half, end = i + half; i < end; i++) {
+			char c = info.charAt(i);
+			if (c < '0' || c > '9') return 1;
+			value = value * 10 + (c - '0');
+		}
+		return (value == 0) ? 1 : value;
+	}
+	
+	/**
+	 * Returns the element index, the index is built on first access.
+	 * 
+	 * @return the element index
+	 */
+	private int[] getIndex() {
+		
+		if (index == null) {
+			int[] idx = new int[(MAX_OID + 1) * 3];
+			buildIndex(data, idx);
+			values = new String[MAX_OID + 1];
+			index = idx;
+		}
+		return index;
+	}
+	
+	/**
+	 * Builds the element index for the supplied data. The index holds the
+	 * offset, the length and the compaction scheme of each OID, the length
+	 * of not available OIDs is negative. If an OID is available more than
+	 * once, the first element is indexed. Indexing stops at the terminating
+	 * zero precursor or an incomplete element.
+	 * 
+	 * @param data the data to index
+	 * @param idx the index to fill
+	 */
+	private static void buildIndex(byte[] data, int[] idx) {
+		
+		for (int i = 1; i < idx.length; i += 3) idx[i] = -1;
+		
+		int[] el = new int[4];
+		int pos = 0;
+		
+		while ((pos = nextElement(data, pos, el)) >= 0) {
+			
+			int oid = el[0];
+			
+			if (oid <= MAX_OID && idx[oid * 3 + 1] < 0) {
+				idx[oid * 3] = el[2];
+				idx[oid * 3 + 1] = el[3];
+				idx[oid * 3 + 2] = el[1];
+			}
+		}
+	}
+	
+	/**
+	 * Parses the data element at the supplied position. The element is
+	 * returned in el as OID, compaction scheme, offset and length of the
+	 * compacted data.
+	 * 
+	 * @param data the data holding the element
+	 * @param pos the position of the precursor
+	 * @param el the array to return the element in
+	 * @return the position of the next element or -1 at the terminating
+	 * zero precursor, the end of the data or an incomplete element
+	 */
+	private static int nextElement(byte[] data, int pos, int[] el) {
+		
+		if (pos >= data.length) return -1;
+		
+		int pre = data[pos++] & 0xFF;
+		
+		// end of data elements
+		if (pre == 0x00) return -1;
+		
+		int oid = pre & 0x0F;
+		int pad = 0;
+		
+		// extended OID
+		if (oid == 0x0F) {
+			if (pos >= data.length) return -1;
+			oid = 15 + (data[pos++] & 0xFF);
+		}
+		// offset with padding bytes
+		if ((pre & 0x80) != 0) {
+			if (pos >= data.length) return -1;
+			pad = data[pos++] & 0xFF;
+		}
+		
+		if (pos >= data.length) return -1;
+		int len = data[pos++] & 0xFF;
+		
+		// incomplete element
+		if (pos + len > data.length) return -1;
+		
+		el[0] = oid;
+		el[1] = (pre >> 4) & 0x07;
+		el[2] = pos;
+		el[3] = len;
+		return pos + len + pad;
+	}
+	
+	/**
+	 * Decodes the compacted data of a data element.
+	 * 
+	 * @param data the data holding the element
+	 * @param off the offset of the compacted data
+	 * @param len the length of the compacted data
+	 * @param compaction the compaction scheme
+	 * @return the decoded value
+	 */
+	private static String decode(byte[] data, int off, int len, int compaction) {
+		
+		switch (compaction) {
+			case COMPACT_INTEGER: return decodeInteger(data, off, len);
+			case COMPACT_NUMERIC:
+				// remove leading '1' preserving leading zeros
+				String num = decodeInteger(data, off, len);
+				return (num.length() > 0) ? num.substring(1) : num;
+			case COMPACT_5BIT: return decodeBits(data, off, len, 5);
+			case COMPACT_6BIT: return decodeBits(data, off, len, 6);
+			case COMPACT_7BIT: return decodeBits(data, off, len, 7);
+			case COMPACT_UTF8: return new String(data, off, len, UTF8);
+			default: return new String(data, off, len, OCTET);
+		}
+	}
+	
+	/**
+	 * Decodes an unsigned big-endian integer to its decimal representation.
+	 * 
+	 * @param data the data holding the integer
+	 * @param off the offset of the integer
+	 * @param len the length of the integer in bytes
+	 * @return the decimal representation
+	 */
+	private static String decodeInteger(byte[] data, int off, int len) {
+		
+		// fast path for integers fitting into a long
+		if (len < 8 || (len == 8 && data[off] >= 0)) {
+			long value = 0;
+			for (int i = off; i < off + len; i++) value = (value << 8) | (data[i] & 0xFF);
+			return Long.toString(value);
+		}
+		return new BigInteger(1, Arrays.copyOfRange(data, off, off + len)).toString();
+	}
+	
+	/**
+	 * Decodes a bit packed character String. The String is padded with zero
+	 * bits to full bytes, so a trailing zero character inside the padding
+	 * bits is ignored.
+	 * 
+	 * @param data the data holding the String
+	 * @param off the offset of the String
+	 * @param len the length of the String in bytes
+	 * @param bits the number of bits per character (5, 6, 7)
+	 * @return the decoded String
+	 */
+	private static String decodeBits(byte[] data, int off, int len, int bits) {
+		
+		int count = len * 8 / bits;
+		char[] chars = new char[count];
+		int mask = (1 << bits) - 1;
+		int acc = 0;
+		int accBits = 0;
+		int pos = off;
+		
+		for (int i = 0; i < count; i++) {
+			
+			// fill bit accumulator
+			while (accBits < bits) {
+				acc = (acc << 8) | (data[pos++] & 0xFF);
+				accBits += 8;
+			}
+			int v = (acc >> (accBits - bits)) & mask;
+			accBits -= bits;
+			
+			switch (bits) {
+				case 5: chars[i] = (char)(v | 0x40); break;
+				case 6: chars[i] = (char)((v < 0x20) ? v | 0x40 : v); break;
+				default: chars[i] = (char)v;
+			}
+		}
+		// ignore zero character inside the padding bits
+		if (count > 0 && len * 8 - (count - 1) * bits < 8 && (chars[count - 1] & mask) == 0)
+			count--;
+		
+		return new String(chars, 0, count);
+	}
+	
+	/**
+	 * Encodes the data elements to the data-model with the supplied value
+	 * for the supplied OID. The primary item identifier is encoded first,
+	 * followed by the other indexed elements ordered by their OID, the
+	 * elements not held by the index in their original order and the
+	 * terminating zero precursor. Padding bytes of the elements are removed.
+	 * 
+	 * @param oid the relative OID of the modified data element
+	 * @param value the value of the modified data element or null to
+	 * remove the data element
+	 */
+	private void encode(int oid, String value) {
+		
+		int[] idx = getIndex();
+		ByteArrayOutputStream buf = new ByteArrayOutputStream(data.length);
+		
+		for (int i = 1; i <= MAX_OID; i++) {
+			
+			// encode modified element
+			if (i == oid) {
+				if (value != null) encodeElement(buf, i, value);
+			}
+			// copy unchanged element
+			else if (idx[i * 3 + 1] >= 0) {
+				writeHeader(buf, i, idx[i * 3 + 2], idx[i * 3 + 1]);
+				buf.write(data, idx[i * 3], idx[i * 3 + 1]);
+			}
+		}
+		
+		// copy extended and repeated elements
+		int[] el = new int[4];
+		int pos = 0;
+		
+		while ((pos = nextElement(data, pos, el)) >= 0) {
+			
+			if (el[0] <= MAX_OID && idx[el[0] * 3] == el[2]) continue;
+			
+			writeHeader(buf, el[0], el[1], el[3]);
+			buf.write(data, el[2], el[3]);
+		}
+		buf.write(0x00);
+		
+		byte[] re = buf.toByteArray();
+		setData(Arrays.copyOf(re, Math.max(re.length, data.length)));
+	}
+	
+	/**
+	 * Encodes a single data element with the best compaction scheme
+	 * for the supplied value.
+	 * 
+	 * @param buf the buffer to write the element to
+	 * @param oid the relative OID of the data element
+	 * @param value the value to encode
+	 */
+	private static void encodeElement(ByteArrayOutputStream buf, int oid, String value) {
+		
+		int compaction = getCompaction(value);
+		byte[] re;
+		
+		switch (compaction) {
+			case COMPACT_INTEGER: re = new BigInteger(value).toByteArray(); break;
+			case COMPACT_NUMERIC: re = new BigInteger("1" + value).toByteArray(); break;
+			case COMPACT_5BIT:
+			case COMPACT_6BIT:
+			case COMPACT_7BIT: re = encodeBits(value, compaction + 2); break;
+			default: re = value.getBytes(UTF8);
+		}
+		
+		// remove sign byte of integers
+		if (re.length > 1 && re[0] == 0x00 && compaction <= COMPACT_NUMERIC)
+			re = Arrays.copyOfRange(re, 1, re.length);
+		
+		if (re.length > 0xFF) throw new IllegalArgumentException(
+				String.format("value exceeds 255 bytes: '%s'", value));
+		
+		writeHeader(buf, oid, compaction, re.length);
+		buf.write(re, 0, re.length);
+	}
+	
+	/**
+	 * Writes the precursor, the extended OID if required and the length
+	 * of a data element without offset.
+	 * 
+	 * @param buf the buffer to write the header to
+	 * @param oid the relative OID of the data element
+	 * @param compaction the compaction scheme
+	 * @param len the length of the compacted data
+	 */
+	private static void writeHeader(ByteArrayOutputStream buf, int oid, int compaction, int len) {
+		
+		if (oid < 15) buf.write((compaction << 4) | oid);
+		else {
+			buf.write((compaction << 4) | 0x0F);
+			buf.write(oid - 15);
+		}
+		buf.write(len);
+	}
+	
+	/**
+	 * Returns the best compaction scheme for the supplied value.
+	 * 
+	 * @param value the value to encode
+	 * @return the compaction scheme
+	 */
+	private static int getCompaction(String value) {
+		
+		boolean digits = value.length() > 0;
+		int max = 0;
+		int min = 0xFFFF;
+		
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') digits = false;
+			if (c > max) max = c;
+			if (c < min) min = c;
+		}
+		
+		if (digits) return (value.charAt(0) != '0' || value.length() == 1)
+				? COMPACT_INTEGER : COMPACT_NUMERIC;
+		if (min >= 0x41 && max <= 0x5F) return COMPACT_5BIT;
+		if (min >= 0x20 && max <= 0x5F) return COMPACT_6BIT;
+		if (max < 0x80) return COMPACT_7BIT;
+		return COMPACT_UTF8;
+	}
+	
+	/**
+	 * Encodes a bit packed character String, padded with zero bits to
+	 * full bytes.
+	 * 
+	 * @param value the String to encode
+	 * @param bits the number of bits per character (5, 6, 7)
+	 * @return the encoded String
+	 */
+	private static byte[] encodeBits(String value, int bits) {
+		
+		byte[] re = new byte[(value.length() * bits + 7) / 8];
+		int mask = (1 << bits) - 1;
+		int acc = 0;
+		int accBits = 0;
+		int pos = 0;
+		
+		for (int i = 0; i < value.length(); i++) {
+			
+			acc = (acc << bits) | (value.charAt(i) & mask);
+			accBits += bits;
+			
+			// flush complete bytes
+			while (accBits >= 8) {
+				re[pos++] = (byte)(acc >> (accBits - 8));
+				accBits -= 8;
+			}
+		}
+		if (accBits > 0) re[pos] = (byte)(acc << (8 - accBits));
+		return re;
+	}
+}
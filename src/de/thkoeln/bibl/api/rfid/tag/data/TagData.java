@@ -5,9 +5,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 
 import javax.xml.bind.DatatypeConverter;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -16,6 +14,8 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.adapters.HexBinaryAdapter;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
+import de.thkoeln.bibl.api.io.XMLSerializer;
+
 /**
  * Class represents the data of a tag and implements methods to
  * manipulate this data. Sub-classes can use this functionality and
@@ -26,11 +26,10 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
  * 
  * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
  * 
- * TODO add writing support for tag data and ddm/bibliotheca data model
  */
 @XmlRootElement(name="tag-data")
 @XmlAccessorType(XmlAccessType.NONE)
-public class TagData implements Serializable {
+public class TagData implements Serializable, Cloneable {
 
 	private static final long serialVersionUID = -256126272869007236L;
 	
@@ -121,6 +120,26 @@ public class TagData implements Serializable {
 		return data.clone();
 	}
 	
+	/**
+	 * Returns a copy of the tag-data. The copy holds its own data
+	 * buffer, so modifications of the copy don't affect this tag-data.
+	 * Sub-classes holding mutable state must override this method.
+	 * 
+	 * @return the copy of the tag-data
+	 */
+	public TagData copy() {
+		
+		TagData re;
+		
+		try { re = (TagData)super.clone(); }
+		catch (CloneNotSupportedException e) {
+			throw new IllegalStateException("could not copy tag-data", e);
+		}
+		
+		re.data = data.clone();
+		return re;
+	}
+	
 	/**
 	 * Returns the model of this tag-data.
 	 * 
@@ -141,6 +160,17 @@ public class TagData implements Serializable {
 		return data[idx] & 0xFF;
 	}
 	
+	/**
+	 * Sets the tag-data at a specific index to the supplied
+	 * unsigned byte value.
+	 * 
+	 * @param idx the index to set the data at
+	 * @param value the data byte
+	 */
+	protected void setData(int idx, int value) {
+		data[idx] = (byte)value;
+	}
+	
 	/**
 	 * Returns a specific part of the tag-data as copy.
 	 * 
@@ -152,6 +182,32 @@ public class TagData implements Serializable {
 		return new String(Arrays.copyOfRange(data, idx, idx + len)).trim();
 	}
 	
+	/**
+	 * Sets a specific part of the tag-data to the supplied String.
+	 * The String is encoded with the same charset used when reading 
+	 * the data range and the remaining bytes of the range are filled
+	 * with null bytes.
+	 * 
+	 * @param idx the starting index to set the data at
+	 * @param len number of bytes the range has
+	 * @param value the String to set
+	 * @throws IllegalArgumentException if the encoded String doesn't
+	 * fit into the data range
+	 */
+	protected void setDataRange(int idx, int len, String value) 
+			throws IllegalArgumentException {
+		
+		byte[] val = value.trim().getBytes();
+		
+		// verify encoded value fits into range
+		if (val.length > len) throw new IllegalArgumentException(
+				String.format("value exceeds %d bytes: '%s'", len, value));
+		
+		// copy value and fill up with null bytes
+		Arrays.fill(data, idx, idx + len, (byte)0x00);
+		System.arraycopy(val, 0, data, idx, val.length);
+	}
+	
 	/**
 	 * Returns unique hash over the complete tag-data.
 	 * 
@@ -185,10 +241,6 @@ public class TagData implements Serializable {
 	 * @throws JAXBException if the object could't serialized
 	 */
 	public void serializeTo(OutputStream out) throws JAXBException {
-		
-		Marshaller marshaller = JAXBContext.newInstance(this.getClass())
-				.createMarshaller();
-		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-		marshaller.marshal(this, out);
+		XMLSerializer.serialize(this, out);
 	}
 }
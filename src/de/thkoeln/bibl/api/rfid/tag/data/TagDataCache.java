@@ -0,0 +1,202 @@
+package de.thkoeln.bibl.api.rfid.tag.data;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class implements a bounded cache of decoded data models, used to skip
+ * the decoding of unchanged tag data. Tags leaving the reader cache or
+ * scanned again in a further inventory run are decoded only once as long
+ * as their tag data doesn't change.
+ * 
+ * The cache holds the last decoded data model for each UID together with
+ * the hash of the tag data. A cached data model is used if the hash and
+ * the tag data match, otherwise the tag data is decoded again and replaces
+ * the cached data model. The least recently used entry is removed if the
+ * capacity is exceeded.
+ * 
+ * The cached data models are never handed out, every lookup returns a
+ * copy, so the returned data model can be modified without affecting the
+ * cache. Copying a data model doesn't decode the data again.
+ * 
+ * Instances of this class are thread safe.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class TagDataCache {
+	
+	private static final TagDataCache defaultCache = new TagDataCache(1024);
+	
+	private Map<String, CacheEntry> entries;
+	private long hits;
+	private long misses;
+	
+	/**
+	 * Initialize a new TagDataCache with the supplied capacity.
+	 * 
+	 * @param capacity the maximum number of cached data models
+	 */
+	public TagDataCache(final int capacity) {
+		
+		if (capacity < 1)
+			throw new IllegalArgumentException("invalid capacity: " + capacity);
+		
+		// LRU map removing the eldest entry
+		entries = new LinkedHashMap<String, CacheEntry>(capacity * 4 / 3 + 1, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the default cache, used by the tags decoding their
+	 * data model.
+	 * 
+	 * @return the default cache
+	 */
+	public static TagDataCache getDefault() {
+		return defaultCache;
+	}
+	
+	/**
+	 * Returns the data model of the supplied tag data decoded with the
+	 * supplied format.
+	 * 
+	 * @param uid the UID of the tag
+	 * @param payload the tag data to decode
+	 * @param format the format used to decode the tag data
+	 * @return a copy of the decoded data model
+	 */
+	public TagData decode(String uid, byte[] payload, TagDataFormat format) {
+		
+		TagData model = lookup(uid, payload, format);
+		if (model != null) return model;
+		
+		return store(uid, payload, format, format.decode(payload));
+	}
+	
+	/**
+	 * Returns the data model of the supplied tag data decoded with the
+	 * format detected by the supplied registry.
+	 * 
+	 * @param uid the UID of the tag
+	 * @param payload the tag data to decode
+	 * @param registry the registry used to detect the format
+	 * @return a copy of the decoded data model
+	 */
+	public TagData decode(String uid, byte[] payload, TagDataRegistry registry) {
+		
+		TagData model = lookup(uid, payload, registry);
+		if (model != null) return model;
+		
+		return store(uid, payload, registry, registry.decode(payload));
+	}
+	
+	/**
+	 * Returns the number of cached data models.
+	 * 
+	 * @return the number of cached data models
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Returns the number of lookups answered by the cache.
+	 * 
+	 * @return the number of cache hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of lookups which required decoding.
+	 * 
+	 * @return the number of cache misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Removes all cached data models.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		hits = 0;
+		misses = 0;
+	}
+	
+	/**
+	 * Returns a copy of the cached data model for the supplied tag data.
+	 * 
+	 * @param uid the UID of the tag
+	 * @param payload the tag data
+	 * @param decoder the format or registry the data model was decoded with
+	 * @return a copy of the cached data model or null if no matching data
+	 * model is cached
+	 */
+	private TagData lookup(String uid, byte[] payload, Object decoder) {
+		
+		int hash = Arrays.hashCode(payload);
+		CacheEntry entry;
+		
+		synchronized (this) {
+			entry = entries.get(uid);
+			
+			// verify tag data is unchanged
+			if (entry == null || entry.hash != hash || entry.decoder != decoder
+					|| !Arrays.equals(entry.payload, payload)) {
+				misses++;
+				return null;
+			}
+			hits++;
+		}
+		return entry.model.copy();
+	}
+	
+	/**
+	 * Stores the decoded data model and returns a copy.
+	 * 
+	 * @param uid the UID of the tag
+	 * @param payload the decoded tag data
+	 * @param decoder the format or registry the data model was decoded with
+	 * @param model the decoded data model
+	 * @return a copy of the data model
+	 */
+	private TagData store(String uid, byte[] payload, Object decoder, TagData model) {
+		
+		CacheEntry entry = new CacheEntry(payload.clone(), decoder, model);
+		
+		synchronized (this) {
+			entries.put(uid, entry);
+		}
+		return model.copy();
+	}
+	
+	/**
+	 * Cached data model with the decoded tag data.
+	 */
+	private static class CacheEntry {
+		
+		private final byte[] payload;
+		private final int hash;
+		private final Object decoder;
+		private final TagData model;
+		
+		private CacheEntry(byte[] payload, Object decoder, TagData model) {
+			this.payload = payload;
+			this.hash = Arrays.hashCode(payload);
+			this.decoder = decoder;
+			this.model = model;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package de.thkoeln.bibl.api.rfid.tag.data;
+
+/**
+ * Class describes a tag data format (data model layout) and decodes
+ * the tag data into the matching data model.
+ * 
+ * A format is identified by a marker in the first byte of the tag data,
+ * defined by a bit mask and the expected value of the masked bits. The
+ * marker is used by the TagDataRegistry to find the candidate formats
+ * for the tag data without testing all registered formats. Formats
+ * sharing the same marker are distinguished by accepts().
+ * 
+ * @see TagDataRegistry
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public abstract class TagDataFormat {
+	
+	/** DDM, version number in the high nibble of the first byte and a
+	 * valid checksum */
+	public static final TagDataFormat DDM = new TagDataFormat("DDM", 0xF0, 0x10, 32) {
+		
+		@Override
+		public boolean accepts(byte[] data) {
+			return super.accepts(data) && DDMData.isValid(data);
+		}
+		
+		@Override
+		public TagData decode(byte[] data) {
+			return new DDMData(data);
+		}
+	};
+	
+	/** Bibliotheca DDM, version number in the low nibble of the first byte,
+	 * a valid checksum and the extended data block starting with two
+	 * zero bytes */
+	public static final TagDataFormat DDM_BIBLIOTHECA = new TagDataFormat("DDM Bibliotheca",
+			0x0F, 0x01, 112) {
+		
+		@Override
+		public boolean accepts(byte[] data) {
+			return super.accepts(data) && data[32] == 0x00 && data[33] == 0x00
+					&& DDMData.isValid(data);
+		}
+		
+		@Override
+		public TagData decode(byte[] data) {
+			return new DDMDataBibliotheca(data);
+		}
+	};
+	
+	/** ISO 28560-2, the first data element is the primary item identifier */
+	public static final TagDataFormat ISO28560_2 = new TagDataFormat("ISO 28560-2",
+			0x0F, 0x01, 3) {
+		
+		@Override
+		public boolean accepts(byte[] data) {
+			return ISO28560Data.isValid(data);
+		}
+		
+		@Override
+		public TagData decode(byte[] data) {
+			return new ISO28560Data(data);
+		}
+	};
+	
+	private String model;
+	private int mask;
+	private int value;
+	private int minSize;
+	
+	/**
+	 * Initialize a new TagDataFormat with the supplied marker.
+	 * 
+	 * @param model the model name identifying the format
+	 * @param mask the bit mask applied to the first byte of the tag data
+	 * @param value the expected value of the masked first byte
+	 * @param minSize the minimum size of the tag data in bytes
+	 */
+	protected TagDataFormat(String model, int mask, int value, int minSize) {
+		this.model = model;
+		this.mask = mask & 0xFF;
+		this.value = value & mask & 0xFF;
+		this.minSize = minSize;
+	}
+	
+	/**
+	 * Returns the model name identifying the format.
+	 * 
+	 * @return the model name
+	 */
+	public String getModel() {
+		return model;
+	}
+	
+	/**
+	 * Returns the minimum size of the tag data in bytes.
+	 * 
+	 * @return the minimum size
+	 */
+	public int getMinSize() {
+		return minSize;
+	}
+	
+	/**
+	 * Checks if the supplied first byte of the tag data matches the
+	 * marker of the format.
+	 * 
+	 * @param first the first byte of the tag data
+	 * @return true if the marker matches
+	 */
+	public boolean matches(int first) {
+		return (first & mask) == value;
+	}
+	
+	/**
+	 * Checks if the supplied tag data can be decoded with this format. The
+	 * marker is already checked by the registry, sub-classes can add
+	 * further checks but must not throw an exception.
+	 * 
+	 * @param data the tag data to check
+	 * @return true if the tag data can be decoded
+	 */
+	public boolean accepts(byte[] data) {
+		return data.length >= minSize;
+	}
+	
+	/**
+	 * Decodes the supplied tag data into the data model of the format.
+	 * 
+	 * @param data the tag data to decode
+	 * @return the decoded data model
+	 */
+	public abstract TagData decode(byte[] data);
+	
+	@Override
+	public String toString() {
+		return model;
+	}
+}
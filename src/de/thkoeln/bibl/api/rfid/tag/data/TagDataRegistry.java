@@ -0,0 +1,133 @@
+package de.thkoeln.bibl.api.rfid.tag.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class implements a registry of tag data formats, used to detect the
+ * format of the tag data and decode it into the matching data model. The
+ * registry allows a single reader to handle a collection with mixed
+ * data models.
+ * 
+ * The candidate formats are held in a table indexed by the first byte of
+ * the tag data, so the detection needs a single table lookup and only
+ * checks the formats sharing the same marker. Formats registered later
+ * are checked first. Tag data without a matching format is decoded as
+ * raw TagData.
+ * 
+ * The default registry contains the DDM, the Bibliotheca DDM and the
+ * ISO 28560-2 format. The DDM formats are checked first, because they
+ * are validated by their checksum.
+ * 
+ * Instances of this class are thread safe.
+ * 
+ * @author <a href="mailto:patrick.rogalla@th-koeln.de">Patrick Rogalla</a>
+ * 
+ */
+public class TagDataRegistry {
+	
+	private static final TagDataFormat[] NONE = new TagDataFormat[0];
+	
+	private static final TagDataRegistry defaultRegistry = new TagDataRegistry(
+			TagDataFormat.ISO28560_2, TagDataFormat.DDM, TagDataFormat.DDM_BIBLIOTHECA);
+	
+	private List<TagDataFormat> formats = new ArrayList<>();
+	private volatile TagDataFormat[][] table;
+	
+	/**
+	 * Initialize a new TagDataRegistry with the supplied formats.
+	 * 
+	 * @param formats the formats to register, later formats are checked first
+	 */
+	public TagDataRegistry(TagDataFormat... formats) {
+		
+		this.formats.addAll(Arrays.asList(formats));
+		buildTable();
+	}
+	
+	/**
+	 * Returns the default registry, used by tags decoding their
+	 * data model.
+	 * 
+	 * @return the default registry
+	 */
+	public static TagDataRegistry getDefault() {
+		return defaultRegistry;
+	}
+	
+	/**
+	 * Registers the supplied format. The format is checked before all
+	 * formats registered before.
+	 * 
+	 * @param format the format to register
+	 */
+	public synchronized void register(TagDataFormat format) {
+		
+		formats.remove(format);
+		formats.add(format);
+		buildTable();
+	}
+	
+	/**
+	 * Removes the supplied format from the registry.
+	 * 
+	 * @param format the format to remove
+	 */
+	public synchronized void unregister(TagDataFormat format) {
+		if (formats.remove(format)) buildTable();
+	}
+	
+	/**
+	 * Returns the format of the supplied tag data.
+	 * 
+	 * @param data the tag data to detect the format of
+	 * @return the detected format or null if no format matches
+	 */
+	public TagDataFormat getFormat(byte[] data) {
+		
+		if (data == null || data.length == 0) return null;
+		
+		// check candidates for the first byte
+		for (TagDataFormat format : table[data[0] & 0xFF])
+			if (format.accepts(data)) return format;
+		
+		return null;
+	}
+	
+	/**
+	 * Decodes the supplied tag data into the data model of the detected
+	 * format.
+	 * 
+	 * @param data the tag data to decode
+	 * @return the decoded data model or raw TagData if no format matches
+	 */
+	public TagData decode(byte[] data) {
+		
+		TagDataFormat format = getFormat(data);
+		
+		if (format != null) return format.decode(data);
+		return new TagData((data != null) ? data : new byte[0]);
+	}
+	
+	/**
+	 * Rebuilds the lookup table of candidate formats for every
+	 * possible first byte.
+	 */
+	private synchronized void buildTable() {
+		
+		TagDataFormat[][] t = new TagDataFormat[256][];
+		List<TagDataFormat> candidates = new ArrayList<>();
+		
+		for (int b = 0; b < t.length; b++) {
+			
+			// add matching formats, latest registered first
+			candidates.clear();
+			for (int i = formats.size() - 1; i >= 0; i--)
+				if (formats.get(i).matches(b)) candidates.add(formats.get(i));
+			
+			t[b] = candidates.isEmpty() ? NONE : candidates.toArray(NONE);
+		}
+		table = t;
+	}
+}